@@ -3,21 +3,33 @@ package errorMsg;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.PrintStream;
 import terminal.*;
 
 public class ErrorMsg {
 	
-	private LineList linePos = new LineList(-1,null);
+	// the positions of the line endings, in the order in which they were
+	// reported, behind a -1 for the start of the file; lineStarts[k] is the
+	// position just before the first character of line k+1
+	private int[] lineStarts = {-1};
 	private int lineNum=1;
+	private boolean inOrder = true;
+	private int lastLookup;
 	private String filename;
 	public boolean anyErrors;
 	private boolean doFrame;
+	private PrintStream msgStream;
 	GuiTerminal2 terminal;
 	
 	
 	public ErrorMsg(String f) {
+		this(f, System.err);
+	}
+	
+	public ErrorMsg(String f, PrintStream msgs) {
 		filename=f;
 		doFrame = false;
+		msgStream = msgs;
 	}
 	
 	public String getFileName() {
@@ -37,8 +49,13 @@ public class ErrorMsg {
 	}
 	
 	public void newline(int pos) {
-		lineNum++;
-		linePos = new LineList(pos,linePos);
+		if (lineNum == lineStarts.length) {
+			lineStarts = java.util.Arrays.copyOf(lineStarts, 2*lineNum);
+		}
+		if (pos < lineStarts[lineNum-1]) {
+			inOrder = false;
+		}
+		lineStarts[lineNum++] = pos;
 	}
 	
 	public void error(int pos, String msg) {
@@ -56,21 +73,97 @@ public class ErrorMsg {
 	}
 	
 	public String lineAndChar(int pos) {
-		int n = lineNum;
-		LineList p = linePos;
-		while (p!=null) {
-			if (p.head<pos) {
-				return String.valueOf(n) + "." + String.valueOf(pos-p.head);
+		int k = lineIndex(pos);
+		if (k < 0) {
+			return "0.0";
+		}
+		return String.valueOf(k+1) + "." + String.valueOf(pos-lineStarts[k]);
+	}
+	
+	public String[] lineAndChar(int[] positions) {
+		String[] rtnVal = new String[positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			rtnVal[i] = lineAndChar(positions[i]);
+		}
+		return rtnVal;
+	}
+	
+	// the line containing the position (numbered from 1), or 0 if none does
+	public int lineOf(int pos) {
+		return lineIndex(pos)+1;
+	}
+	
+	// the position's column (numbered from 1), or 0 if no line contains it
+	public int charOf(int pos) {
+		int k = lineIndex(pos);
+		return k < 0 ? 0 : pos-lineStarts[k];
+	}
+	
+	public int lineCount() {
+		return lineNum;
+	}
+	
+	// the text of a line, without its line ending
+	public String lineText(byte[] source, int line) {
+		return lineText(source, line, line)[0];
+	}
+	
+	// the texts of lines first through last, without their line endings
+	public String[] lineText(byte[] source, int first, int last) {
+		String[] rtnVal = new String[Math.max(0, last-first+1)];
+		for (int line = first; line <= last; line++) {
+			String text = "";
+			if (line >= 1 && line <= lineNum && inOrder) {
+				int start = Math.min(lineStarts[line-1]+1, source.length);
+				int end = line < lineNum ? lineStarts[line] : source.length;
+				end = Math.max(start, Math.min(end, source.length));
+				while (end > start && (source[end-1] == '\r' || source[end-1] == '\n')) {
+					end--;
+				}
+				text = new String(source, start, end-start);
+			}
+			rtnVal[line-first] = text;
+		}
+		return rtnVal;
+	}
+	
+	// the index in lineStarts of the last line ending reported before the
+	// position, or -1 if there is none. Line endings are normally reported in
+	// order, so this is the last one before the position, found by binary
+	// search; the lookup before is tried first, as is the line after it,
+	// since code generation asks about positions in order
+	private int lineIndex(int pos) {
+		if (!inOrder) {
+			for (int k = lineNum-1; k >= 0; k--) {
+				if (lineStarts[k] < pos) return k;
+			}
+			return -1;
+		}
+		int k = lastLookup;
+		if (k < lineNum && lineStarts[k] < pos) {
+			if (k+1 == lineNum || lineStarts[k+1] >= pos) return k;
+			if (k+2 == lineNum || lineStarts[k+2] >= pos) return lastLookup = k+1;
+		}
+		int lo = 0;
+		int hi = lineNum-1;
+		if (lineStarts[0] >= pos) return -1;
+		// lineStarts[lo] < pos, and any entry after hi is >= pos
+		while (lo < hi) {
+			int mid = (lo+hi+1) >>> 1;
+			if (lineStarts[mid] < pos) {
+				lo = mid;
+			}
+			else {
+				hi = mid-1;
 			}
-			p=p.tail; n--;
 		}
-		return "0.0";
+		return lastLookup = lo;
 	}
 	
 	private void msgOut(String s) {
 		createFrameIfNeeded();
 		if (terminal == null) {
-			System.err.println(s);
+			msgStream.println(s);
 		}
 		else {
 			terminal.println(s);
@@ -83,10 +176,5 @@ public class ErrorMsg {
 	}
 }  
 
-class LineList {
-	int head;
-	LineList tail;
-	LineList(int h, LineList t) {head=h; tail=t;}
-}
 
 
@@ -0,0 +1,237 @@
+package main;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * a pipe for handing bytes from one thread to another, holding at most a
+ * fixed number of fixed-size chunks, so that memory use does not depend on
+ * how much data passes through it
+ *
+ * Unlike java.io.PipedInputStream, the reader never polls: it is woken as
+ * soon as the writer fills (or flushes, or closes) a chunk. If the reader
+ * gives up early, the writer's next attempt to hand over a chunk fails
+ * with an IOException instead of blocking forever. The chunks are handed
+ * back to the writer once they have been read, so however much data
+ * passes through, no more than the given number of chunks is ever
+ * allocated.
+ */
+public class BoundedPipe {
+
+	private static final byte[] NO_BYTES = new byte[0];
+	private static final Chunk EOF_CHUNK = new Chunk(0);
+
+	private final int chunkSize;
+	private final int maxChunks;
+	private final BlockingQueue<Chunk> full; // chunks waiting to be read
+	private final BlockingQueue<Chunk> empty; // chunks that have been read
+	private final Sink sink;
+	private final Source source;
+	private volatile boolean readerClosed;
+	private volatile IOException writerFailure;
+
+	/**
+	 * constructor
+	 * @param chunkSize the number of bytes handed over at a time
+	 * @param maxChunks the number of chunks that may be in the pipe at once
+	 */
+	public BoundedPipe(int chunkSize, int maxChunks) {
+		this.chunkSize = chunkSize;
+		this.maxChunks = maxChunks;
+		full = new ArrayBlockingQueue<Chunk>(maxChunks+1);
+		empty = new ArrayBlockingQueue<Chunk>(maxChunks);
+		sink = new Sink();
+		source = new Source();
+	}
+
+	/**
+	 * @return the end of the pipe to which the producer writes
+	 */
+	public OutputStream sink() {
+		return sink;
+	}
+
+	/**
+	 * @return the end of the pipe from which the consumer reads
+	 */
+	public InputStream source() {
+		return source;
+	}
+
+	/**
+	 * records that the producer failed, so that the consumer sees an
+	 * IOException rather than a silently truncated stream
+	 * @param msg a description of the failure
+	 */
+	public void writerFailed(String msg) {
+		writerFailure = new IOException(msg);
+		sink.closeQuietly();
+	}
+
+	/**
+	 * a buffer, and the number of bytes in it that hold data
+	 */
+	private static class Chunk {
+		final byte[] data;
+		int length;
+
+		Chunk(int size) {
+			data = new byte[size];
+		}
+	}
+
+	private class Sink extends OutputStream {
+		private Chunk chunk = null;
+		private byte[] buf = NO_BYTES; // the chunk's data
+		private int count = 0;
+		private int numAllocated = 0;
+		private boolean closed = false;
+
+		@Override
+		public void write(int b) throws IOException {
+			if (count == buf.length) handOver();
+			buf[count++] = (byte)b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (count == buf.length) handOver();
+				int n = Math.min(len, buf.length - count);
+				System.arraycopy(b, off, buf, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (count > 0) {
+				chunk.length = count;
+				put(chunk);
+				chunk = null;
+				buf = NO_BYTES;
+				count = 0;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) return;
+			flush();
+			closed = true;
+			put(EOF_CHUNK);
+		}
+
+		void closeQuietly() {
+			try {
+				close();
+			}
+			catch (IOException iox) {
+			}
+		}
+
+		private void handOver() throws IOException {
+			flush();
+			chunk = emptyChunk();
+			buf = chunk.data;
+		}
+
+		/**
+		 * a chunk to fill: one that has been read, if any; otherwise a new one,
+		 * unless there are already as many as the pipe may hold, in which case
+		 * it waits for the reader to finish one
+		 */
+		private Chunk emptyChunk() throws IOException {
+			Chunk rtnVal = empty.poll();
+			if (rtnVal != null) return rtnVal;
+			if (numAllocated < maxChunks) {
+				numAllocated++;
+				return new Chunk(chunkSize);
+			}
+			try {
+				while ((rtnVal = empty.poll(100, TimeUnit.MILLISECONDS)) == null) {
+					if (readerClosed) throw new IOException("Pipe closed by reader");
+				}
+				return rtnVal;
+			}
+			catch (InterruptedException ix) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+
+		private void put(Chunk c) throws IOException {
+			// there is room for every chunk in 'full', so this never blocks
+			if (readerClosed) throw new IOException("Pipe closed by reader");
+			full.add(c);
+		}
+	}
+
+	private class Source extends InputStream {
+		private Chunk chunk = null;
+		private byte[] buf = NO_BYTES; // the chunk's data
+		private int limit = 0; // the number of bytes in buf
+		private int pos = 0;
+		private boolean eof = false;
+
+		@Override
+		public int read() throws IOException {
+			if (pos == limit && !nextChunk()) return -1;
+			return buf[pos++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) return 0;
+			if (pos == limit && !nextChunk()) return -1;
+			int n = Math.min(len, limit - pos);
+			System.arraycopy(buf, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return limit - pos;
+		}
+
+		@Override
+		public void close() {
+			readerClosed = true;
+			full.clear();
+		}
+
+		private boolean nextChunk() throws IOException {
+			if (chunk != null) {
+				empty.offer(chunk);
+				chunk = null;
+				buf = NO_BYTES;
+				limit = pos = 0;
+			}
+			while (!eof) {
+				Chunk c;
+				try {
+					c = full.take();
+				}
+				catch (InterruptedException ix) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+				if (c == EOF_CHUNK) {
+					eof = true;
+					if (writerFailure != null) throw writerFailure;
+				}
+				else {
+					chunk = c;
+					buf = c.data;
+					limit = c.length;
+					pos = 0;
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package main;
+
+/**
+ * thrown when a compilation cannot continue (e.g., a missing input file);
+ * the command-line driver reports the message and exits, while drivers
+ * that run many compilations in one process report it and carry on
+ */
+public class CompileAbortException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * constructor
+	 * @param msg the message describing why the compilation was aborted
+	 */
+	public CompileAbortException(String msg) {
+		super(msg);
+	}
+}
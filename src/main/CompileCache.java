@@ -0,0 +1,143 @@
+package main;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * an on-disk cache of compiler output, keyed by a hash of everything the
+ * output depends on
+ *
+ * Each entry is a single file, named by its key, in the cache directory.
+ * Entries are written to a temporary file and then atomically renamed into
+ * place, so several compiler processes can share a directory: a reader
+ * sees either a complete entry or none. A hit refreshes the entry's
+ * modification time; when the directory grows beyond its size limit the
+ * least recently used entries are deleted.
+ */
+public class CompileCache {
+
+	private static final String ENTRY_SUFFIX = ".asm";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private File dir;
+	private long maxBytes;
+
+	/**
+	 * constructor
+	 * @param dir the cache directory; created if it does not exist
+	 * @param maxBytes the size beyond which entries are evicted
+	 */
+	public CompileCache(File dir, long maxBytes) {
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+		dir.mkdirs();
+	}
+
+	/**
+	 * computes a cache key
+	 * @param parts the data the cached output depends on; null parts are
+	 * allowed, and are distinct from empty ones
+	 * @return the key, as a hex string
+	 */
+	public static String key(byte[]... parts) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException nsax) {
+			throw new RuntimeException(nsax);
+		}
+		for (byte[] part : parts) {
+			int len = part == null ? -1 : part.length;
+			md.update(new byte[]{(byte)(len>>>24), (byte)(len>>>16),
+					(byte)(len>>>8), (byte)len});
+			if (part != null) md.update(part);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : md.digest()) {
+			sb.append(String.format("%02x", b & 0xff));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * looks up an entry
+	 * @param key the entry's key
+	 * @return the entry's contents, or null if there is no such entry
+	 */
+	public byte[] lookup(String key) {
+		File f = entryFile(key);
+		try {
+			byte[] data = Files.readAllBytes(f.toPath());
+			f.setLastModified(System.currentTimeMillis());
+			return data;
+		}
+		catch (IOException iox) {
+			// missing, or evicted by another process while we were reading
+			return null;
+		}
+	}
+
+	/**
+	 * adds an entry, evicting old entries if the cache becomes too big;
+	 * failures are ignored, since the cache is only an optimization
+	 * @param key the entry's key
+	 * @param data the entry's contents
+	 */
+	public void store(String key, byte[] data) {
+		File tmp = null;
+		try {
+			tmp = File.createTempFile(key, TEMP_SUFFIX, dir);
+			Files.write(tmp.toPath(), data);
+			Files.move(tmp.toPath(), entryFile(key).toPath(),
+					StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			tmp = null;
+		}
+		catch (IOException iox) {
+			return;
+		}
+		finally {
+			if (tmp != null) tmp.delete();
+		}
+		evict();
+	}
+
+	/**
+	 * deletes least recently used entries until the cache is within its
+	 * size limit
+	 */
+	private synchronized void evict() {
+		File[] entries = dir.listFiles(new FilenameFilter() {
+			public boolean accept(File d, String name) {
+				return name.endsWith(ENTRY_SUFFIX);
+			}
+		});
+		if (entries == null) return;
+		long total = 0;
+		final long[] lastUsed = new long[entries.length];
+		Integer[] order = new Integer[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			total += entries[i].length();
+			lastUsed[i] = entries[i].lastModified();
+			order[i] = i;
+		}
+		if (total <= maxBytes) return;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Long.compare(lastUsed[a], lastUsed[b]);
+			}
+		});
+		for (int i = 0; i < order.length && total > maxBytes; i++) {
+			File f = entries[order[i]];
+			long len = f.length();
+			if (f.delete()) total -= len;
+		}
+	}
+
+	private File entryFile(String key) {
+		return new File(dir, key + ENTRY_SUFFIX);
+	}
+}
@@ -0,0 +1,150 @@
+package main;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+/**
+ * a thin client for CompileServer, taking the same command-line arguments
+ * as Main5 (plus an optional '-port N'); the assembly is written to the file
+ * given with '-o', or to standard output, and the diagnostics to standard
+ * error. The client reads the input file, and the append-file given with
+ * '-a', and sends their contents, since the server reads no file on a
+ * client's behalf.
+ */
+public class CompileClient {
+
+	public static void main(String[] args) {
+		int port = CompileServer.DEFAULT_PORT;
+		String outputFileName = null;
+		String appendFileName = null;
+		String inputFileName = null;
+		Vector<String> serverArgs = new Vector<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-port")) {
+				i++;
+				if (i >= args.length) Main5.exitError("No port number after '-port'");
+				try {
+					port = Integer.parseInt(args[i]);
+				}
+				catch (NumberFormatException nfx) {
+					Main5.exitError("Illegal port number: '"+args[i]+"'");
+				}
+			}
+			else if (args[i].equals("-o")) {
+				i++;
+				if (i >= args.length) Main5.exitError("No output file specified after '-o'");
+				if (outputFileName != null) Main5.exitError("Too many output file names given");
+				outputFileName = args[i];
+			}
+			else if (args[i].equals("-a")) {
+				i++;
+				if (i >= args.length) Main5.exitError("No file name after '-a'");
+				appendFileName = args[i];
+			}
+			else if (args[i].equals("-c") || args[i].equals("-i") ||
+					args[i].equals("-j") || args[i].equals("-s")) {
+				// an option and its value, for the server to check
+				serverArgs.add(args[i]);
+				if (i+1 < args.length) serverArgs.add(args[++i]);
+			}
+			else {
+				if (args[i].length() > 0 && args[i].charAt(0) != '-') {
+					if (inputFileName != null) Main5.exitError("Too many input file names given");
+					inputFileName = args[i];
+				}
+				serverArgs.add(args[i]);
+			}
+		}
+		if (inputFileName == null) Main5.exitError("No input file name given");
+
+		byte[] source = readFile(inputFileName);
+		byte[] library = appendFileName == null ? null : readFile(appendFileName);
+
+		int status = CompileServer.STATUS_ABORTED;
+		try {
+			Socket sock = new Socket(InetAddress.getLoopbackAddress(), port);
+			try {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(sock.getOutputStream()));
+				out.writeInt(serverArgs.size());
+				for (String arg : serverArgs) {
+					out.writeUTF(arg);
+				}
+				out.writeInt(source.length);
+				out.write(source);
+				if (library != null) {
+					out.writeInt(library.length);
+					out.write(library);
+				}
+				else {
+					out.writeInt(-1);
+				}
+				out.flush();
+
+				DataInputStream in = new DataInputStream(
+						new BufferedInputStream(sock.getInputStream()));
+				status = in.readInt();
+				byte[] asm = new byte[in.readInt()];
+				in.readFully(asm);
+				byte[] diag = new byte[in.readInt()];
+				in.readFully(diag);
+
+				System.err.write(diag);
+				System.err.flush();
+				if (status != CompileServer.STATUS_ABORTED) {
+					if (outputFileName != null) {
+						OutputStream os = new FileOutputStream(outputFileName);
+						try {
+							os.write(asm);
+						}
+						finally {
+							os.close();
+						}
+					}
+					else {
+						System.out.write(asm);
+						System.out.flush();
+					}
+				}
+			}
+			finally {
+				sock.close();
+			}
+		}
+		catch (ConnectException cx) {
+			Main5.exitError("No compile server running on port "+port);
+		}
+		catch (IOException iox) {
+			Main5.exitError("Error communicating with compile server: "+iox);
+		}
+		if (status == CompileServer.STATUS_ABORTED) {
+			Main5.exit(1);
+		}
+	}
+
+	/**
+	 * reads a file, exiting if it cannot be read
+	 * @param name the file's name
+	 * @return its contents
+	 */
+	private static byte[] readFile(String name) {
+		byte[] rtnVal = null;
+		try {
+			InputStream is = new FileInputStream(name);
+			try {
+				rtnVal = Main5.readFully(is);
+			}
+			finally {
+				is.close();
+			}
+		}
+		catch (FileNotFoundException fnfx) {
+			Main5.exitError("File not found: " + name);
+		}
+		catch (IOException iox) {
+			Main5.exitError("Error reading file: " + name);
+		}
+		return rtnVal;
+	}
+}
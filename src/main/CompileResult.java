@@ -0,0 +1,64 @@
+package main;
+
+/**
+ * the outcome of compiling one source with MJCompiler
+ */
+public class CompileResult {
+
+	private final boolean success;
+	private final byte[] assembly;
+	private final String diagnostics;
+	private final PhaseStats stats;
+
+	/**
+	 * constructor
+	 * @param success whether the compilation succeeded
+	 * @param assembly the generated assembly
+	 * @param diagnostics the diagnostics, one per line
+	 * @param stats the per-phase statistics, or null if none were collected
+	 */
+	CompileResult(boolean success, byte[] assembly, String diagnostics,
+			PhaseStats stats) {
+		this.success = success;
+		this.assembly = assembly;
+		this.diagnostics = diagnostics;
+		this.stats = stats;
+	}
+
+	/**
+	 * @return whether the compilation succeeded, i.e., reported no errors
+	 */
+	public boolean isSuccess() {
+		return success;
+	}
+
+	/**
+	 * @return the generated assembly (empty or partial if the compilation
+	 * failed)
+	 */
+	public byte[] getAssembly() {
+		return assembly;
+	}
+
+	/**
+	 * @return the generated assembly, as text
+	 */
+	public String getAssemblyText() {
+		return new String(assembly);
+	}
+
+	/**
+	 * @return the diagnostics, one per line, in the format Main5 prints them
+	 */
+	public String getDiagnostics() {
+		return diagnostics;
+	}
+
+	/**
+	 * @return the per-phase statistics, or null if the compiler was not
+	 * asked to collect them
+	 */
+	public PhaseStats getStats() {
+		return stats;
+	}
+}
@@ -0,0 +1,202 @@
+package main;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+import errorMsg.*;
+
+/**
+ * a long-running compile server: it keeps the compiler's classes (including
+ * the parse tables) loaded, and accepts compile requests from CompileClient
+ * over a loopback socket
+ *
+ * A request consists of the number of command-line arguments (int) and the
+ * arguments themselves (UTF each), as they would have been given to Main5;
+ * the source, as a length (int) and its bytes; and the runtime library to
+ * append, as a length (int; -1 if there is none) and its bytes. The reply is
+ * a status (int; one of the STATUS_ constants), followed by the generated
+ * assembly and the diagnostics, each as a length (int) and its bytes. A
+ * request with more than MAX_ARGS arguments, or a source or library longer
+ * than MAX_DATA bytes, is answered with STATUS_ABORTED.
+ *
+ * Any local user can connect, so the server reads and writes no file on a
+ * client's behalf: the client itself reads the source and the library it
+ * sends, and writes the assembly it gets back, and the arguments may not
+ * name any file but the input file (see Main5.parseServerCommandLine),
+ * whose name only labels the diagnostics.
+ */
+public class CompileServer {
+
+	public static final int DEFAULT_PORT = 7331;
+
+	public static final int STATUS_OK = 0;
+	public static final int STATUS_ERRORS = 1;
+	public static final int STATUS_ABORTED = 2;
+
+	static final int MAX_ARGS = 1024;
+	static final int MAX_DATA = 16 << 20;
+
+	private int port;
+	private int numThreads;
+
+	public static void main(String[] args) {
+		int port = DEFAULT_PORT;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		for (int i = 0; i < args.length; i++) {
+			try {
+				if (args[i].equals("-port") && i+1 < args.length) {
+					port = Integer.parseInt(args[++i]);
+				}
+				else if (args[i].equals("-j") && i+1 < args.length) {
+					numThreads = Integer.parseInt(args[++i]);
+				}
+				else {
+					Main5.exitError("Illegal argument: '"+args[i]+"'");
+				}
+			}
+			catch (NumberFormatException nfx) {
+				Main5.exitError("Illegal number: '"+args[i]+"'");
+			}
+		}
+		if (numThreads <= 0) Main5.exitError("Illegal thread count: "+numThreads);
+		new CompileServer(port, numThreads).serve();
+	}
+
+	/**
+	 * constructor
+	 * @param port the loopback port on which to listen
+	 * @param numThreads the number of requests to handle concurrently
+	 */
+	public CompileServer(int port, int numThreads) {
+		this.port = port;
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * accepts and handles requests until the process is killed
+	 */
+	public void serve() {
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		ServerSocket serverSocket = null;
+		try {
+			serverSocket =
+				new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		}
+		catch (IOException iox) {
+			Main5.exitError("Cannot listen on port "+port+": "+iox.getMessage());
+		}
+		System.err.println("Compile server listening on "+
+				serverSocket.getLocalSocketAddress());
+		for (;;) {
+			try {
+				final Socket sock = serverSocket.accept();
+				pool.submit(new Runnable() {
+					public void run() {
+						handleRequest(sock);
+					}
+				});
+			}
+			catch (IOException iox) {
+				System.err.println("Error accepting connection: "+iox);
+			}
+		}
+	}
+
+	/**
+	 * reads one request from the socket, compiles it, and sends the reply
+	 * @param sock the client's connection
+	 */
+	void handleRequest(Socket sock) {
+		try {
+			try {
+				DataInputStream in = new DataInputStream(
+						new BufferedInputStream(sock.getInputStream()));
+				ByteArrayOutputStream asm = new ByteArrayOutputStream();
+				ByteArrayOutputStream diag = new ByteArrayOutputStream();
+				PrintStream diagStream = new PrintStream(diag);
+				int status;
+				try {
+					String[] args = new String[readLength(in, MAX_ARGS, "argument count")];
+					for (int i = 0; i < args.length; i++) {
+						args[i] = in.readUTF();
+					}
+					byte[] source = new byte[readLength(in, MAX_DATA, "source length")];
+					in.readFully(source);
+					byte[] library = null;
+					int libraryLength = in.readInt();
+					if (libraryLength != -1) {
+						if (libraryLength < 0 || libraryLength > MAX_DATA) {
+							throw new ProtocolException("Illegal library length: "+libraryLength);
+						}
+						library = new byte[libraryLength];
+						in.readFully(library);
+					}
+					status = compile(args, source, library, new PrintStream(asm), diagStream);
+				}
+				catch (ProtocolException px) {
+					diagStream.println("Request rejected: "+px.getMessage());
+					status = STATUS_ABORTED;
+				}
+				diagStream.flush();
+
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(sock.getOutputStream()));
+				out.writeInt(status);
+				out.writeInt(asm.size());
+				asm.writeTo(out);
+				out.writeInt(diag.size());
+				diag.writeTo(out);
+				out.flush();
+			}
+			finally {
+				sock.close();
+			}
+		}
+		catch (IOException iox) {
+			System.err.println("Error handling request: "+iox);
+		}
+	}
+
+	/**
+	 * reads a length from a request
+	 * @param in the request
+	 * @param max the largest length allowed
+	 * @param what what the length is of, for the message if it is illegal
+	 * @return the length
+	 * @throws IOException if the length cannot be read, or is negative or
+	 * larger than max (a ProtocolException)
+	 */
+	private static int readLength(DataInputStream in, int max, String what)
+			throws IOException {
+		int rtnVal = in.readInt();
+		if (rtnVal < 0 || rtnVal > max) {
+			throw new ProtocolException("Illegal "+what+": "+rtnVal);
+		}
+		return rtnVal;
+	}
+
+	/**
+	 * compiles one request
+	 * @param args the command-line arguments
+	 * @param source the source
+	 * @param library the runtime library to append, or null
+	 * @param out the stream to which the assembly is written
+	 * @param diag the stream to which diagnostics are written
+	 * @return the status to report to the client
+	 */
+	int compile(String[] args, byte[] source, byte[] library,
+			PrintStream out, PrintStream diag) {
+		Main5 mainObj = new Main5(source, library, out, diag);
+		try {
+			mainObj.parseServerCommandLine(args);
+			mainObj.errorMsg = new ErrorMsg(mainObj.inputFileName, diag);
+			mainObj.execMain(false);
+			return mainObj.errorMsg.anyErrors ? STATUS_ERRORS : STATUS_OK;
+		}
+		catch (CompileAbortException e) {
+			diag.println(e.getMessage());
+			return STATUS_ABORTED;
+		}
+	}
+}
@@ -0,0 +1,629 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * a hand-written scanner for MiniJava that produces the same output as
+ * MJScanner run by MJScannerParseTable, but as a single pass over the
+ * source bytes with no per-character objects
+ *
+ * The output is the filtered text that the grammar parser reads in filter
+ * mode. It has exactly one byte for each byte of the source, so that
+ * positions in it are positions in the source:
+ * <ul>
+ * <li>white space and comments become blanks, except that a line ending
+ * stays a newline (a CR-LF pair becomes a blank and a newline)</li>
+ * <li>a reserved word becomes '#', its first letter and a letter that
+ * makes it unique, followed by blanks ("if" becomes "#+", any other
+ * two-letter word "#-")</li>
+ * <li>an identifier is copied, with 0x80 added to its last character</li>
+ * <li>an integer literal becomes its decimal value, with 0x80 added to
+ * its last digit, followed by blanks; a non-zero hexadecimal literal
+ * instead keeps its digits, behind a "0"</li>
+ * <li>a string literal becomes its quote and its characters (escapes
+ * resolved), with 0x80 added to the last one, followed by blanks; the
+ * empty string becomes "@\""</li>
+ * <li>a character literal becomes its quote and its character (escape
+ * resolved), followed by blanks</li>
+ * <li>a two-character operator becomes '@' and its first character; other
+ * operators are copied</li>
+ * </ul>
+ * Only input on which MJScanner reports no errors is handled; for any
+ * other input, scan returns null, so that the caller can run MJScanner
+ * instead and get its error messages.
+ *
+ * Runs of blanks and the text of comments, which make up most of a typical
+ * source file, are handled eight bytes at a time: each eight bytes are
+ * read as a long, and tested all at once with the usual bit tricks for
+ * finding a byte of a given value, or below or above a given value, in a
+ * word.
+ *
+ * A large source file on a machine with more than one processor is split
+ * into chunks, each starting at a class declaration, and the chunks are
+ * scanned in parallel. Since a chunk's output goes to the same positions
+ * of the output as its source has in the input, the chunks' outputs need
+ * no stitching, and positions (and so line numbers) are those of a
+ * sequential scan.
+ */
+public class DfaScanner {
+
+	private static final int BUMP = 0x80;
+
+	// a byte of ones in each position of a long, etc.
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGHS = 0x8080808080808080L;
+	private static final long LOWS = 0x7f7f7f7f7f7f7f7fL;
+	private static final long BLANKS = ONES*' ';
+	private static final long TABS = ONES*'\t';
+	private static final long STARS = ONES*'*';
+
+	// the smallest file that is scanned in parallel, and the smallest chunk
+	private static final int PARALLEL_THRESHOLD = 1<<20;
+	private static final int CHUNK_SIZE = 1<<18;
+
+	// the pool that scans the chunks, created when it is first needed
+	private static ForkJoinPool pool;
+
+	// the reserved words, by first letter, and their filtered text
+	private static final byte[][][] reserved = new byte[26][][];
+	private static final byte[][][] reservedText = new byte[26][][];
+
+	// the reserved words whose third filtered character is their last letter
+	// rather than their second
+	private static final String[] lastLetterWords = {
+		"case", "const", "finally", "implements", "int", "interface",
+		"protected", "static", "throw", "throws", "transient", "try", "volatile",
+	};
+
+	static {
+		String[] words = {
+			"abstract", "assert", "boolean", "break", "byte", "case", "catch",
+			"char", "class", "const", "continue", "default", "do", "double",
+			"else", "enum", "extends", "false", "final", "finally", "float",
+			"for", "goto", "if", "implements", "import", "instanceof", "int",
+			"interface", "long", "native", "new", "null", "package", "private",
+			"protected", "public", "return", "short", "static", "strictfp",
+			"super", "switch", "synchronized", "this", "throw", "throws",
+			"transient", "true", "try", "void", "volatile", "while",
+		};
+		for (int k = 0; k < 26; k++) {
+			int count = 0;
+			for (String w : words) {
+				if (w.charAt(0) == 'a'+k) count++;
+			}
+			reserved[k] = new byte[count][];
+			reservedText[k] = new byte[count][];
+			count = 0;
+			for (String w : words) {
+				if (w.charAt(0) == 'a'+k) {
+					reserved[k][count] = ascii(w);
+					reservedText[k][count] = ascii(filteredText(w));
+					count++;
+				}
+			}
+		}
+	}
+
+	private static String filteredText(String w) {
+		if (w.length() == 2) {
+			return w.equals("if") ? "#+" : "#-";
+		}
+		char c = Arrays.asList(lastLetterWords).contains(w)
+			? w.charAt(w.length()-1) : w.charAt(1);
+		StringBuilder sb = new StringBuilder("#"+w.charAt(0)+c);
+		while (sb.length() < w.length()) {
+			sb.append(' ');
+		}
+		return sb.toString();
+	}
+
+	private byte[] src;
+	private byte[] out;
+	private int len;
+	private final byte[] digitBuf = new byte[10];
+
+	// the source and the output, eight bytes at a time
+	private ByteBuffer srcWords;
+	private ByteBuffer outWords;
+
+	private DfaScanner(byte[] src, byte[] out) {
+		this.src = src;
+		this.out = out;
+		len = src.length;
+		srcWords = ByteBuffer.wrap(src);
+		outWords = ByteBuffer.wrap(out);
+	}
+
+	/**
+	 * scans a source file
+	 * @param src the contents of the file
+	 * @return the filtered text, or null if the file contains something that
+	 * MJScanner would report as an error
+	 */
+	public static byte[] scan(byte[] src) {
+		if (src.length >= PARALLEL_THRESHOLD &&
+				Runtime.getRuntime().availableProcessors() > 1) {
+			return scanInParallel(src, pool());
+		}
+		byte[] out = new byte[src.length];
+		return new DfaScanner(src, out).scan(0, src.length) ? out : null;
+	}
+
+	private static synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool();
+		}
+		return pool;
+	}
+
+	/**
+	 * scans a source file in chunks, in parallel
+	 * @param src the contents of the file
+	 * @param pool the pool that scans the chunks
+	 * @return the filtered text, or null if the file contains something that
+	 * MJScanner would report as an error
+	 */
+	static byte[] scanInParallel(final byte[] src, ForkJoinPool pool) {
+		final byte[] out = new byte[src.length];
+		final int[] starts = chunkStarts(src);
+		Boolean ok = pool.invoke(new RecursiveTask<Boolean>() {
+			protected Boolean compute() {
+				return scanChunks(src, out, starts, 0, starts.length-1);
+			}
+		});
+		if (ok) return out;
+		// a chunk is in error, or a split was not between constructs; a
+		// sequential scan says which
+		return new DfaScanner(src, out).scan(0, src.length) ? out : null;
+	}
+
+	/**
+	 * scans chunks first through last-1, forking for all but the first half
+	 * @param starts the chunks' start positions, followed by the end of the
+	 * source
+	 * @return whether each chunk was scanned without error
+	 */
+	private static boolean scanChunks(final byte[] src, final byte[] out,
+			final int[] starts, int first, int last) {
+		if (last-first == 1) {
+			return new DfaScanner(src, out).scan(starts[first], starts[last]);
+		}
+		final int mid = (first+last)/2;
+		final int end = last;
+		RecursiveTask<Boolean> rest = new RecursiveTask<Boolean>() {
+			protected Boolean compute() {
+				return scanChunks(src, out, starts, mid, end);
+			}
+		};
+		rest.fork();
+		boolean ok = scanChunks(src, out, starts, first, mid);
+		return rest.join() && ok;
+	}
+
+	/**
+	 * finds where to split a source file: at the first class declaration
+	 * (MiniJava has only top-level classes) that starts a line at least
+	 * CHUNK_SIZE bytes past the start of the previous chunk
+	 *
+	 * No attempt is made to skip comments and literals, since doing that
+	 * takes nearly as long as scanning the file. A split inside a comment or
+	 * literal is caught instead by the scan of the chunk before it, which
+	 * then does not end exactly at the split; if all chunks do, each of them
+	 * starts where a sequential scan would be between constructs, and so is
+	 * scanned exactly as a sequential scan would scan it.
+	 * @param src the contents of the file
+	 * @return the start positions of the chunks, followed by the end of the
+	 * file
+	 */
+	static int[] chunkStarts(byte[] src) {
+		int len = src.length;
+		int[] rtnVal = new int[len/CHUNK_SIZE+2];
+		int n = 0;
+		rtnVal[n++] = 0;
+		for (int i = CHUNK_SIZE; i+6 <= len; i++) {
+			if (src[i] == 'c' && src[i-1] == '\n' && startsWith(src, i, "class ")) {
+				rtnVal[n++] = i;
+				i += CHUNK_SIZE-1;
+			}
+		}
+		rtnVal[n++] = len;
+		return Arrays.copyOf(rtnVal, n);
+	}
+
+	private static boolean startsWith(byte[] src, int i, String s) {
+		for (int k = 0; k < s.length(); k++) {
+			if (src[i+k] != s.charAt(k)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * scans the chunk from position from to position to, which must start
+	 * and end between constructs
+	 * @return whether the chunk was scanned without error, ending exactly at
+	 * position to
+	 */
+	private boolean scan(int from, int to) {
+		int i = from;
+		while (i < to) {
+			int c = src[i] & 0xff;
+			switch (c) {
+				case ' ': case '\t': case '\f':
+					out[i++] = ' ';
+					i = blankWords(i);
+					break;
+				case '\n':
+					out[i++] = '\n';
+					break;
+				case '\r':
+					i = newline(i);
+					break;
+				case '%': case '*': case '(': case ')': case '{': case '}':
+				case '[': case ']': case ',': case ':': case '.': case ';':
+					out[i] = (byte)c;
+					i++;
+					break;
+				case '!': case '<': case '>': case '=':
+					i = operator(i, c, '=', true);
+					break;
+				case '+': case '-':
+					i = operator(i, c, c, true);
+					break;
+				case '&': case '|':
+					i = operator(i, c, c, false);
+					break;
+				case '/':
+					if (i+1 < len && src[i+1] == '/') {
+						i = lineComment(i);
+					}
+					else if (i+1 < len && src[i+1] == '*') {
+						i = blockComment(i);
+					}
+					else {
+						out[i] = '/';
+						i++;
+					}
+					break;
+				case '"':
+					i = stringLiteral(i);
+					break;
+				case '\'':
+					i = charLiteral(i);
+					break;
+				case '0':
+					i = (i+1 < len && (src[i+1] == 'x' || src[i+1] == 'X'))
+						? hexLiteral(i) : octalLiteral(i);
+					break;
+				case '1': case '2': case '3': case '4': case '5':
+				case '6': case '7': case '8': case '9':
+					i = decimalLiteral(i);
+					break;
+				default:
+					if (isLetter(c)) {
+						i = word(i);
+					}
+					else {
+						return false;
+					}
+					break;
+			}
+			if (i < 0) return false;
+		}
+		return i == to;
+	}
+
+	// each of the following handles the construct starting at position i,
+	// and returns the position following it, or -1 if it is in error
+
+	private int newline(int i) {
+		if (i+1 < len && src[i+1] == '\n') {
+			out[i] = ' ';
+			out[i+1] = '\n';
+			return i+2;
+		}
+		out[i] = '\n';
+		return i+1;
+	}
+
+	private int operator(int i, int c, int second, boolean singleAllowed) {
+		if (i+1 < len && src[i+1] == second) {
+			out[i] = '@';
+			out[i+1] = (byte)c;
+			return i+2;
+		}
+		if (!singleAllowed) return -1;
+		out[i] = (byte)c;
+		return i+1;
+	}
+
+	/**
+	 * skips the words of eight blanks and tabs starting at position i
+	 * @return the position following them
+	 */
+	private int blankWords(int i) {
+		for (; i+8 <= len; i += 8) {
+			long w = srcWords.getLong(i);
+			if ((bytesEqual(w, BLANKS) | bytesEqual(w, TABS)) != HIGHS) break;
+			outWords.putLong(i, BLANKS);
+		}
+		return i;
+	}
+
+	private int lineComment(int i) {
+		int k = i;
+		while (k < len) {
+			if (k+8 <= len && isPrintableWord(srcWords.getLong(k))) {
+				outWords.putLong(k, BLANKS);
+				k += 8;
+				continue;
+			}
+			int c = src[k] & 0xff;
+			if (c == '\n' || c == '\r') return k;
+			if (!isCommentChar(c)) return -1;
+			out[k++] = ' ';
+		}
+		// the comment must end with a line ending
+		return -1;
+	}
+
+	private int blockComment(int i) {
+		out[i] = ' ';
+		out[i+1] = ' ';
+		int k = i+2;
+		while (k < len) {
+			if (k+8 <= len) {
+				long w = srcWords.getLong(k);
+				if (isPrintableWord(w) && bytesEqual(w, STARS) == 0) {
+					outWords.putLong(k, BLANKS);
+					k += 8;
+					continue;
+				}
+			}
+			int c = src[k] & 0xff;
+			if (c == '*' && k+1 < len && src[k+1] == '/') {
+				out[k] = ' ';
+				out[k+1] = ' ';
+				return k+2;
+			}
+			else if (c == '\n') {
+				out[k++] = '\n';
+			}
+			else if (c == '\r') {
+				k = newline(k);
+			}
+			else if (isCommentChar(c)) {
+				out[k++] = ' ';
+			}
+			else {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	private int stringLiteral(int i) {
+		int n = i+1; // where the next character of the string goes
+		int k = i+1;
+		for (;;) {
+			if (k >= len) return -1;
+			int c = src[k] & 0xff;
+			if (c == '"') break;
+			if (c == '\\') {
+				if (k+1 >= len || (c = escape(src[k+1] & 0xff)) < 0) return -1;
+				k += 2;
+			}
+			else if (isPrintable(c)) {
+				k++;
+			}
+			else {
+				return -1;
+			}
+			out[n++] = (byte)c;
+		}
+		k++;
+		if (n == i+1) {
+			out[i] = '@';
+			out[i+1] = '"';
+			return k;
+		}
+		out[i] = '"';
+		out[n-1] += BUMP;
+		blanks(n, k);
+		return k;
+	}
+
+	private int charLiteral(int i) {
+		int k = i+1;
+		if (k >= len) return -1;
+		int c = src[k] & 0xff;
+		if (c == '\\') {
+			if (k+1 >= len || (c = escape(src[k+1] & 0xff)) < 0) return -1;
+			k += 2;
+		}
+		else if (isPrintable(c) && c != '\'') {
+			k++;
+		}
+		else {
+			return -1;
+		}
+		if (k >= len || src[k] != '\'') return -1;
+		k++;
+		out[i] = '\'';
+		out[i+1] = (byte)c;
+		blanks(i+2, k);
+		return k;
+	}
+
+	private int decimalLiteral(int i) {
+		long value = 0;
+		int k = i;
+		for (; k < len && isDigit(src[k]); k++) {
+			value = value*10 + (src[k]-'0');
+			// out of range: MJScanner reports an error
+			if (value > Integer.MAX_VALUE) return -1;
+		}
+		System.arraycopy(src, i, out, i, k-i);
+		out[k-1] += BUMP;
+		return k;
+	}
+
+	private int octalLiteral(int i) {
+		long value = 0;
+		int k = i+1;
+		for (; k < len && src[k] >= '0' && src[k] <= '7'; k++) {
+			value = value*8 + (src[k]-'0');
+			if (value > Integer.MAX_VALUE) return -1;
+		}
+		int n = decimal((int)value, i);
+		blanks(n, k);
+		return k;
+	}
+
+	private int hexLiteral(int i) {
+		long value = 0;
+		int k = i+2;
+		for (; k < len; k++) {
+			int d = hexDigit(src[k] & 0xff);
+			if (d < 0) break;
+			value = value*16 + d;
+			if (value > Integer.MAX_VALUE) return -1;
+		}
+		if (k == i+2) return -1;
+		if (value == 0) {
+			out[i] = (byte)('0'+BUMP);
+			blanks(i+1, k);
+		}
+		else {
+			out[i] = '0';
+			System.arraycopy(src, i+2, out, i+1, k-i-2);
+			out[k-2] += BUMP;
+			out[k-1] = ' ';
+		}
+		return k;
+	}
+
+	private int word(int i) {
+		int k = i+1;
+		while (k < len && isIdChar(src[k] & 0xff)) k++;
+		byte[] text = reservedText(i, k);
+		if (text == null) {
+			System.arraycopy(src, i, out, i, k-i);
+			out[k-1] += BUMP;
+		}
+		else {
+			System.arraycopy(text, 0, out, i, text.length);
+		}
+		return k;
+	}
+
+	/**
+	 * the filtered text of the reserved word occupying positions start
+	 * through end-1, if it is one
+	 */
+	private byte[] reservedText(int start, int end) {
+		int first = src[start]-'a';
+		if (first < 0 || first >= 26) return null;
+		byte[][] words = reserved[first];
+	candidates:
+		for (int j = 0; j < words.length; j++) {
+			byte[] w = words[j];
+			if (w.length != end-start) continue;
+			for (int k = 1; k < w.length; k++) {
+				if (src[start+k] != w[k]) continue candidates;
+			}
+			return reservedText[first][j];
+		}
+		return null;
+	}
+
+	/**
+	 * writes a value in decimal, with its last digit bumped
+	 * @return the position following the digits
+	 */
+	private int decimal(int value, int pos) {
+		int n = 0;
+		do {
+			digitBuf[n++] = (byte)('0' + value%10);
+			value /= 10;
+		} while (value > 0);
+		for (int k = 0; k < n; k++) {
+			out[pos+k] = digitBuf[n-1-k];
+		}
+		out[pos+n-1] += BUMP;
+		return pos+n;
+	}
+
+	private void blanks(int from, int to) {
+		for (int k = from; k < to; k++) {
+			out[k] = ' ';
+		}
+	}
+
+	/**
+	 * @return a long with the top bit set in each byte of w that equals the
+	 * corresponding byte of pattern, and all other bits clear
+	 */
+	private static long bytesEqual(long w, long pattern) {
+		long t = w ^ pattern;
+		return ~(((t & LOWS) + LOWS) | t | LOWS);
+	}
+
+	/**
+	 * @return whether each byte of w is printable, i.e., in ' '..'~'
+	 */
+	private static boolean isPrintableWord(long w) {
+		// whether some byte is less than ' ', and whether some byte is greater
+		// than '~'; each test may mark the wrong byte, but never the wrong word
+		boolean below = ((w - ONES*' ') & ~w & HIGHS) != 0;
+		boolean above = (((w + ONES*(0x7f-'~')) | w) & HIGHS) != 0;
+		return !below && !above;
+	}
+
+	private static int escape(int c) {
+		switch (c) {
+			case 'n': return '\n';
+			case 't': return '\t';
+			case 'f': return '\f';
+			case 'r': return '\r';
+			case '"': case '\'': case '\\': return c;
+			default: return -1;
+		}
+	}
+
+	private static int hexDigit(int c) {
+		if (c >= '0' && c <= '9') return c-'0';
+		if (c >= 'a' && c <= 'f') return c-'a'+10;
+		if (c >= 'A' && c <= 'F') return c-'A'+10;
+		return -1;
+	}
+
+	private static boolean isDigit(byte c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLetter(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isIdChar(int c) {
+		return isLetter(c) || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	private static boolean isPrintable(int c) {
+		return c >= ' ' && c <= '~';
+	}
+
+	private static boolean isCommentChar(int c) {
+		return isPrintable(c) || c == '\t' || c == '\f';
+	}
+
+	private static byte[] ascii(String s) {
+		byte[] rtnVal = new byte[s.length()];
+		for (int k = 0; k < rtnVal.length; k++) {
+			rtnVal[k] = (byte)s.charAt(k);
+		}
+		return rtnVal;
+	}
+}
@@ -0,0 +1,116 @@
+package main;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import visitor.CodeFragment;
+
+/**
+ * the per-class code fragments saved by incremental compilation ('-i dir'),
+ * one file per input file in the given directory
+ */
+public class FragmentStore {
+
+	private static final String SUFFIX = ".frag";
+	private static final int FORMAT = 2; // the layout of the files
+
+	private File dir;
+
+	/**
+	 * constructor
+	 * @param dir the directory holding the fragment files; created if it
+	 * does not exist
+	 */
+	public FragmentStore(File dir) {
+		this.dir = dir;
+		dir.mkdirs();
+	}
+
+	/**
+	 * loads the fragments saved by the last compilation of a file
+	 * @param inputFile the file being compiled
+	 * @return the fragments, by fingerprint; empty if there are none or they
+	 * cannot be read
+	 */
+	public Map<String,CodeFragment> load(File inputFile) {
+		Map<String,CodeFragment> rtnVal = new HashMap<String,CodeFragment>();
+		File f = storeFile(inputFile);
+		if (!f.exists()) return rtnVal;
+		try {
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(f)));
+			try {
+				if (!in.readUTF().equals(Main5.COMPILER_VERSION)) return rtnVal;
+				if (in.readInt() != FORMAT) return rtnVal;
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					String key = in.readUTF();
+					int numLines = in.readInt();
+					byte[] text = new byte[in.readInt()];
+					in.readFully(text);
+					int[] labels = new int[in.readInt()];
+					for (int k = 0; k < labels.length; k++) {
+						labels[k] = in.readInt();
+					}
+					rtnVal.put(key, new CodeFragment(numLines, text, labels));
+				}
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException iox) {
+			// a damaged file only costs a full compilation
+			rtnVal.clear();
+		}
+		return rtnVal;
+	}
+
+	/**
+	 * saves the fragments of a compilation, replacing those of the last one
+	 * @param inputFile the file being compiled
+	 * @param fragments the fragments, by fingerprint
+	 */
+	public void save(File inputFile, Map<String,CodeFragment> fragments) {
+		File tmp = null;
+		try {
+			tmp = File.createTempFile("frag", ".tmp", dir);
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeUTF(Main5.COMPILER_VERSION);
+				out.writeInt(FORMAT);
+				out.writeInt(fragments.size());
+				for (Map.Entry<String,CodeFragment> e : fragments.entrySet()) {
+					out.writeUTF(e.getKey());
+					out.writeInt(e.getValue().numLines);
+					out.writeInt(e.getValue().text.length);
+					out.write(e.getValue().text);
+					out.writeInt(e.getValue().labels.length);
+					for (int k : e.getValue().labels) {
+						out.writeInt(k);
+					}
+				}
+			}
+			finally {
+				out.close();
+			}
+			Files.move(tmp.toPath(), storeFile(inputFile).toPath(),
+					StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			tmp = null;
+		}
+		catch (IOException iox) {
+			// the next compilation will just be a full one
+		}
+		finally {
+			if (tmp != null) tmp.delete();
+		}
+	}
+
+	private File storeFile(File inputFile) {
+		return new File(dir, CompileCache.key(
+				inputFile.getAbsolutePath().getBytes()) + SUFFIX);
+	}
+}
@@ -0,0 +1,64 @@
+package main;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * the runtime libraries (append-files) used by this process, each read
+ * from disk once and then shared by every compilation that appends it
+ *
+ * An entry is re-read only if the file's size or modification time has
+ * changed since it was loaded, so a long-running compile server picks up
+ * a rebuilt library without a restart.
+ */
+public class LibraryCache {
+
+	private static final Hashtable<String,Entry> libraries =
+		new Hashtable<String,Entry>();
+
+	private LibraryCache() {
+	}
+
+	/**
+	 * the contents of a runtime library
+	 * @param f the library file
+	 * @return the library's contents
+	 * @throws IOException if the library cannot be read
+	 */
+	public static byte[] get(File f) throws IOException {
+		String key = f.getAbsolutePath();
+		Entry lib = libraries.get(key);
+		if (lib == null || lib.lastModified != f.lastModified() ||
+				lib.data.length != f.length()) {
+			lib = new Entry(f);
+			libraries.put(key, lib);
+		}
+		return lib.data;
+	}
+
+	/**
+	 * a runtime library held in memory
+	 */
+	private static class Entry {
+		long lastModified;
+		byte[] data;
+
+		Entry(File f) throws IOException {
+			lastModified = f.lastModified();
+			FileInputStream is = new FileInputStream(f);
+			try {
+				FileChannel ch = is.getChannel();
+				ByteBuffer buf = ByteBuffer.allocate((int)ch.size());
+				while (buf.hasRemaining()) {
+					if (ch.read(buf) < 0) break;
+				}
+				data = Arrays.copyOf(buf.array(), buf.position());
+			}
+			finally {
+				is.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package main;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * an in-process entry point to the compiler, for callers that compile
+ * many sources in one JVM (e.g., test harnesses or services)
+ *
+ * Sources are taken from memory rather than files, and results are
+ * returned as CompileResult objects rather than printed. A compilation
+ * never exits the JVM: anything that would make Main5 exit is reported
+ * as a failed result instead. An MJCompiler has no mutable state, so one
+ * instance may be shared by any number of threads.
+ */
+public class MJCompiler {
+
+	private static final Charset SOURCE_CHARSET = Charset.forName("UTF-8");
+	private static final int ALL_PASSES = 10;
+
+	private final int passLimit;
+	private final byte[] runtimeLibrary;
+	private final boolean collectStats;
+
+	/**
+	 * constructor -- runs all passes, appends no runtime library and
+	 * collects no statistics
+	 */
+	public MJCompiler() {
+		this(ALL_PASSES, null, false);
+	}
+
+	/**
+	 * constructor
+	 * @param passLimit the number of passes to run (as with Main5's '-1'
+	 * through '-9'; 10 for all)
+	 * @param runtimeLibrary the runtime library to append to the generated
+	 * code (as with Main5's '-a'), or null
+	 * @param collectStats whether to collect per-phase statistics
+	 */
+	public MJCompiler(int passLimit, byte[] runtimeLibrary, boolean collectStats) {
+		this.passLimit = passLimit;
+		this.runtimeLibrary = runtimeLibrary;
+		this.collectStats = collectStats;
+	}
+
+	/**
+	 * compiles a source
+	 * @param name the name under which the source is reported in
+	 * diagnostics (and which, as with a file name, seeds the whitespace in
+	 * the generated code)
+	 * @param source the source text
+	 * @return the result
+	 */
+	public CompileResult compile(String name, CharSequence source) {
+		return compile(name, source.toString().getBytes(SOURCE_CHARSET));
+	}
+
+	/**
+	 * compiles a source
+	 * @param name the name under which the source is reported in
+	 * diagnostics
+	 * @param source the source's bytes, from the buffer's position to its
+	 * limit; the buffer itself is not modified
+	 * @return the result
+	 */
+	public CompileResult compile(String name, ByteBuffer source) {
+		ByteBuffer buf = source.duplicate();
+		byte[] bytes = new byte[buf.remaining()];
+		buf.get(bytes);
+		return compile(name, bytes);
+	}
+
+	private CompileResult compile(String name, byte[] source) {
+		ByteArrayOutputStream asm = new ByteArrayOutputStream();
+		ByteArrayOutputStream diag = new ByteArrayOutputStream();
+		PrintStream diagStream = new PrintStream(diag);
+		Main5 mainObj = new Main5(name, source, runtimeLibrary, passLimit,
+				collectStats, new PrintStream(asm), diagStream);
+		boolean success;
+		try {
+			mainObj.execMain(false);
+			success = !mainObj.errorMsg.anyErrors;
+		}
+		catch (CompileAbortException e) {
+			diagStream.println(e.getMessage());
+			success = false;
+		}
+		diagStream.flush();
+		return new CompileResult(success, asm.toByteArray(), diag.toString(),
+				mainObj.getStats());
+	}
+}
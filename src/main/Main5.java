@@ -1,6 +1,8 @@
 package main;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import parse.*;
 import syntaxtree.*;
@@ -8,6 +10,8 @@ import treedisplay.*;
 import visitor.*;
 import errorMsg.*;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
 import java.awt.*;
 
 public class Main5 {
@@ -18,8 +22,28 @@ public class Main5 {
 	private static final int WINDOW = 1;
 	private static final int PRINT = 2;
 	
+	private static final int TABLE_SCANNER = 0;
+	private static final int DFA_SCANNER = 1;
+	private static final int VERIFY_SCANNERS = 2;
+	
 	private static final int DEFAULT_PASS_LIMIT = 10;
 	private static final int DEFAULT_FONT_SIZE = 12;
+	private static final String OUTPUT_SUFFIX = ".asm";
+	private static final String STATS_SUFFIX = ".stats.json";
+	private static final int PIPE_CHUNK_SIZE = 8192;
+	private static final int PIPE_CHUNKS = 16;
+	private static final long DEFAULT_CACHE_LIMIT = 256L*1024*1024;
+	private static final int STAGE_QUEUE_CAPACITY = 4;
+	
+	// the phases of a compilation (see runStage); in a pipelined batch
+	// ('-s'), each is a stage of the pipeline
+	static final String[] STAGE_NAMES = {
+		"parse", "sem1", "sem2", "sem3", "sem4", "sem5", "cg1", "cg2", "cg3", "append"
+	};
+	
+	// identifies the code generator; change whenever the generated code
+	// changes, so that cached output from older versions is not reused
+	static final String COMPILER_VERSION = "Main5-2";
 	private static final Color defaultColor() { return new Color(0xbb,0x99,0xff); }
 	
 	private int mode;
@@ -32,35 +56,144 @@ public class Main5 {
 	private InputStream inputStream;
 	private PrintStream outputStream;
 	private InputStream appendStream;
+	private byte[] appendData; // contents of the append-file, if shared
+	private boolean shareLibrary; // whether to use LibraryCache for the append-file
+	private PrintStream fileOutputStream; // the output stream, if it is a file
+	private FileChannel outputChannel; // the channel of that file
 	ErrorMsg errorMsg;
+	private boolean batch;
+	private int numThreads;
+	private Vector<String> batchInputFileNames;
+	PrintStream stdOutput;
+	PrintStream diagStream;
+	private boolean statsMode; // whether to report statistics ('-stats')
+	private boolean collectStats; // whether to collect them for the caller
+	private PhaseStats stats;
+	private String cacheDirName;
+	private CompileCache cache;
+	private String cacheKey;
+	private ByteArrayOutputStream cacheBuffer; // output, held back for caching
+	private PrintStream cachedOutputStream; // where the held-back output goes
+	private String fragmentDirName;
+	private FragmentStore fragmentStore;
+	private byte[] inputData; // contents of the input file, if read in advance
+	private int scanner; // which scanner to use ('-fastscan', '-verifyscan')
+	private boolean separateSemPasses; // whether to run Sem1-Sem5 ('-sempasses')
+	private FusedSemVisitor semantics; // the fused semantic analyzer, if used
+	private int[] stageThreads; // threads per stage of a pipelined batch, if any
+	private int[] idCounter; // this compilation's unique-ID counter
+	private AstNode ast;
+	private Hashtable<String,ClassDecl> globalTab;
+	private boolean finished; // whether the last stage has been run
+	
+	static {
+		// Sem3Visitor creates an AST node in its static initializer; make sure
+		// that happens before any compilation starts, so that it never takes a
+		// unique ID from the middle of some compilation's numbering
+		try {
+			Class.forName("visitor.Sem3Visitor");
+		}
+		catch (ClassNotFoundException e) {
+		}
+	}
 	
 	public static void main(String args[])  {
 		Main5 mainObj = new Main5();
-		mainObj.parseCommandLine(args);
-		mainObj.errorMsg = new ErrorMsg(mainObj.inputFileName);
-		mainObj.execMain(false);
+		try {
+			mainObj.parseCommandLine(args);
+			if (mainObj.batch) {
+				mainObj.execBatch();
+			}
+			else {
+				mainObj.errorMsg = new ErrorMsg(mainObj.inputFileName);
+				mainObj.execMain(false);
+			}
+		}
+		catch (CompileAbortException e) {
+			exitError(e.getMessage());
+		}
 	}
 	
 	void execMain(boolean useTerminal) {
+		for (int i = 0; i < STAGE_NAMES.length; i++) {
+			this.runStage(i);
+		}
+	}
+	
+	/**
+	 * runs one phase of the compilation on the current thread; the first
+	 * stage also sets the compilation up (and may find its output in the
+	 * cache, leaving nothing for the other stages to do), and the last one
+	 * also finishes it. The stages must be run in order, but each may be run
+	 * by a different thread.
+	 * @param stage the phase's index in STAGE_NAMES
+	 */
+	void runStage(int stage) {
 		try {
-			this.openFiles();
-			AstNode ast = this.parseFile();
-			Hashtable<String,ClassDecl> globalTab = this.semanticPhase1(ast);
-			this.semanticPhase2(ast, globalTab);
-			this.semanticPhase3(ast, globalTab);
-			this.semanticPhase4(ast, globalTab);
-			this.semanticPhase5(ast, globalTab);
-			this.cgPhase1(ast, globalTab);
-			this.cgPhase2(ast);
-			this.cgPhase3(ast);
-			this.appendFile();
-			this.printSummaryMessage();
-			this.displayAst(ast);
-			this.closeFiles();
+			if (stage == 0) {
+				AstNode.resetUniqueIdCounter();
+				idCounter = AstNode.getUniqueIdCounter();
+				finished = false;
+				stats = (statsMode || collectStats) ? new PhaseStats(inputFileName) : null;
+				this.openFiles();
+				if (fragmentStore != null) {
+					this.readInputData();
+				}
+				if (this.lookupCache()) {
+					this.printSummaryMessage();
+					this.reportStats();
+					this.closeFiles();
+					finished = true;
+					return;
+				}
+			}
+			else if (finished) {
+				return;
+			}
+			else {
+				AstNode.setUniqueIdCounter(idCounter);
+			}
+			// in fused mode, phase 3 does the work of phases 4 and 5
+			boolean fused = semantics != null;
+			if (fused && (stage == 4 || stage == 5)) {
+				// nothing to do, or to measure
+			}
+			else {
+				beginPhase(fused && stage == 3 ? "sem3-5" : STAGE_NAMES[stage]);
+			}
+			switch (stage) {
+				case 0: ast = this.parseFile(); break;
+				case 1: globalTab = this.semanticPhase1(ast); break;
+				case 2: this.semanticPhase2(ast, globalTab); break;
+				case 3: this.semanticPhase3(ast, globalTab); break;
+				case 4: this.semanticPhase4(ast, globalTab); break;
+				case 5: this.semanticPhase5(ast, globalTab); break;
+				case 6: this.cgPhase1(ast, globalTab); break;
+				case 7: this.cgPhase2(ast); break;
+				case 8: this.cgPhase3(ast); break;
+				case 9: this.appendFile(); break;
+			}
+			if (!(fused && (stage == 4 || stage == 5))) {
+				endPhase();
+			}
+			if (stage == STAGE_NAMES.length-1) {
+				this.storeCache();
+				this.printSummaryMessage();
+				this.reportStats();
+				this.displayAst(ast);
+				this.closeFiles();
+				ast = null;
+				globalTab = null;
+				semantics = null;
+				finished = true;
+			}
+		}
+		catch (CompileAbortException e) {
+			throw e;
 		}
 		catch (Exception e) {
-			e.printStackTrace();
-			exitError("Unexpected exception: "+e);
+			e.printStackTrace(diagStream);
+			abort("Unexpected exception: "+e);
 		}
 	}
 	
@@ -72,16 +205,231 @@ public class Main5 {
 		outputFileName = null;
 		appendFileName = null;
 		errorMsg = null;
+		batch = false;
+		numThreads = Runtime.getRuntime().availableProcessors();
+		batchInputFileNames = new Vector<String>();
+		cacheDirName = null;
+		cache = null;
+		fragmentDirName = null;
+		fragmentStore = null;
+		shareLibrary = false;
+		statsMode = false;
+		collectStats = false;
+		scanner = TABLE_SCANNER;
+		stdOutput = System.out;
+		diagStream = System.err;
+	}
+	
+	/**
+	 * constructor for a compilation run on behalf of a client of the compile
+	 * server: the source and the runtime library are the ones the client
+	 * sent (the input file name on the command line only names the source
+	 * in diagnostics), and output that would otherwise go to the standard
+	 * output and error streams goes to the given streams
+	 * @param source the source
+	 * @param library the runtime library to append, or null
+	 * @param out the stream that replaces standard output
+	 * @param diag the stream that replaces standard error
+	 */
+	Main5(byte[] source, byte[] library, PrintStream out, PrintStream diag) {
+		this();
+		inputData = source;
+		appendData = library;
+		stdOutput = out;
+		diagStream = diag;
+	}
+	
+	/**
+	 * constructor for a compilation of source held in memory (see MJCompiler)
+	 * @param name the name under which the source is reported
+	 * @param source the source
+	 * @param library the runtime library to append, or null
+	 * @param passLimit the number of passes to run
+	 * @param collect whether to collect per-phase statistics
+	 * @param out the stream to which the assembly is written
+	 * @param diag the stream to which diagnostics are written
+	 */
+	Main5(String name, byte[] source, byte[] library, int passLimit,
+			boolean collect, PrintStream out, PrintStream diag) {
+		this();
+		inputFileName = name;
+		inputData = source;
+		appendData = library;
+		pass = passLimit;
+		collectStats = collect;
+		stdOutput = out;
+		diagStream = diag;
+		errorMsg = new ErrorMsg(name, diag);
+	}
+	
+	/**
+	 * constructor for one compilation of a batch: copies the settings of
+	 * the batch, but compiles just one input into one output
+	 * @param proto the object holding the batch's settings
+	 * @param inFile the input file name
+	 * @param outFile the output file name
+	 */
+	Main5(Main5 proto, String inFile, String outFile) {
+		this();
+		mode = proto.mode;
+		pass = proto.pass;
+		fontSize = proto.fontSize;
+		color = proto.color;
+		appendFileName = proto.appendFileName;
+		shareLibrary = true;
+		statsMode = proto.statsMode;
+		scanner = proto.scanner;
+		cache = proto.cache;
+		fragmentStore = proto.fragmentStore;
+		stdOutput = proto.stdOutput;
+		diagStream = proto.diagStream;
+		inputFileName = inFile;
+		outputFileName = outFile;
+	}
+	
+	/**
+	 * compiles each of the batch's input files, either each as a whole on a
+	 * fixed pool of worker threads, or, with '-s', phase by phase in a
+	 * PipelineExecutor; each input is written to its own output file
+	 */
+	void execBatch() {
+		List<Main5> jobs = new ArrayList<Main5>();
+		for (String name : batchInputFileNames) {
+			Main5 job = new Main5(this, name, batchOutputFileName(name));
+			job.errorMsg = new ErrorMsg(job.inputFileName, job.diagStream);
+			jobs.add(job);
+		}
+		try {
+			if (stageThreads != null) {
+				new PipelineExecutor(stageThreads, STAGE_QUEUE_CAPACITY).run(jobs);
+			}
+			else {
+				ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+				for (final Main5 job : jobs) {
+					pool.submit(new Runnable() {
+						public void run() {
+							try {
+								job.execMain(false);
+							}
+							catch (CompileAbortException e) {
+								job.diagStream.println(e.getMessage());
+								job.errorMsg.anyErrors = true;
+							}
+						}
+					});
+				}
+				pool.shutdown();
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			}
+		}
+		catch (InterruptedException e) {
+			abort("Batch compilation interrupted");
+		}
+		int numFailed = 0;
+		for (Main5 job : jobs) {
+			if (job.errorMsg.anyErrors || !job.finished) numFailed++;
+		}
+		diagStream.println("Batch compilation finished: "+
+				(jobs.size()-numFailed)+" of "+jobs.size()+
+				" files compiled successfully.");
+	}
+	
+	/**
+	 * the output file to use for an input of the batch: the input's name
+	 * with its ".java" suffix replaced by ".asm", placed in the directory
+	 * given with '-o', if any
+	 * @param inFile the input file name
+	 * @return the output file name
+	 */
+	private String batchOutputFileName(String inFile) {
+		File f = new File(inFile);
+		String base = derivedFileName(f.getName(), OUTPUT_SUFFIX);
+		if (outputFileName != null) {
+			return new File(outputFileName, base).getPath();
+		}
+		else {
+			return new File(f.getParentFile(), base).getPath();
+		}
+	}
+	
+	/**
+	 * the name of a file derived from an input file, by replacing its
+	 * ".java" suffix with another one
+	 * @param inFile the input file name
+	 * @param suffix the new suffix
+	 * @return the derived name
+	 */
+	private static String derivedFileName(String inFile, String suffix) {
+		if (inFile.endsWith(".java")) {
+			inFile = inFile.substring(0, inFile.length()-".java".length());
+		}
+		return inFile + suffix;
+	}
+	
+	/**
+	 * adds a command-line input to the batch: a directory contributes all
+	 * of its ".java" files, a name of the form '@file' contributes each
+	 * non-blank line of that file, and anything else is taken as a
+	 * single input file
+	 * @param arg the command-line argument
+	 */
+	private void addBatchInput(String arg) {
+		if (arg.startsWith("@")) {
+			String listFileName = arg.substring(1);
+			try {
+				BufferedReader rdr =
+					new BufferedReader(new FileReader(listFileName));
+				try {
+					for (;;) {
+						String line = rdr.readLine();
+						if (line == null) break;
+						line = line.trim();
+						if (line.length() > 0) batchInputFileNames.add(line);
+					}
+				}
+				finally {
+					rdr.close();
+				}
+			}
+			catch (IOException iox) {
+				abort("Error reading list file: " + listFileName);
+			}
+		}
+		else if (new File(arg).isDirectory()) {
+			String[] names = new File(arg).list();
+			Arrays.sort(names);
+			for (String name : names) {
+				File f = new File(arg, name);
+				if (name.endsWith(".java") && f.isFile()) {
+					batchInputFileNames.add(f.getPath());
+				}
+			}
+		}
+		else {
+			batchInputFileNames.add(arg);
+		}
 	}
 	
 	void parseCommandLine(String[] args) {
 		for (int i = 0; i < args.length; i++) {
 			String arg = args[i];
 			if (arg.length() == 0) {
-				exitError("Illegal argument: '"+arg+"'");
+				abort("Illegal argument: '"+arg+"'");
 			}
 			else if (arg.charAt(0) == '-') {
-				if (arg.startsWith("-w")) {
+				if (arg.equals("-stats")) {
+					statsMode = true;
+				}
+				else if (arg.equals("-fastscan")) {
+					scanner = DFA_SCANNER;
+				}
+				else if (arg.equals("-verifyscan")) {
+					scanner = VERIFY_SCANNERS;
+				}
+				else if (arg.equals("-sempasses")) {
+					separateSemPasses = true;
+				}
+				else if (arg.startsWith("-w")) {
 					mode = WINDOW;
 					int endIntPos =  arg.indexOf(":", 2);
 					int startColorPos = arg.length();
@@ -121,10 +469,37 @@ public class Main5 {
 						case '9': pass = 9; break;
 						case 'a':
 							i++;
-							if (i >= args.length) exitError ("No file name after '-a'");
+							if (i >= args.length) abort("No file name after '-a'");
 							appendFileName = args[i];
 							break;
+						case 'b': batch = true; break;
+						case 'c':
+							i++;
+							if (i >= args.length) abort("No directory name after '-c'");
+							cacheDirName = args[i];
+							break;
+						case 'i':
+							i++;
+							if (i >= args.length) abort("No directory name after '-i'");
+							fragmentDirName = args[i];
+							break;
+						case 'j':
+							i++;
+							if (i >= args.length) abort("No thread count after '-j'");
+							try {
+								numThreads = Integer.parseInt(args[i]);
+							}
+							catch (NumberFormatException nfx) {
+								numThreads = 0;
+							}
+							if (numThreads <= 0) abort("Illegal thread count: '"+args[i]+"'");
+							break;
 						case 'p': mode = PRINT; break;
+						case 's':
+							i++;
+							if (i >= args.length) abort("No thread counts after '-s'");
+							stageThreads = parseStageThreads(args[i]);
+							break;
 						case 'w':
 							mode = WINDOW;	
 							fontSize = DEFAULT_FONT_SIZE;
@@ -133,89 +508,289 @@ public class Main5 {
 						case 'o':
 							i++;
 							if (i >= args.length) {
-								exitError("No output file specified after '-o'");
+								abort("No output file specified after '-o'");
 							}
 							if (outputFileName != null)
-								exitError("Too many output file names given");
+								abort("Too many output file names given");
 							outputFileName = args[i];
 							break;
 						default:
-							exitError("Illegal switch: '"+arg+"'");
+							abort("Illegal switch: '"+arg+"'");
 						break;
 					}
 				}
 			}
 			else {
-				if (inputFileName != null) exitError("Too many input file names given");
-				inputFileName = arg;
+				batchInputFileNames.add(arg);
+			}
+		}
+		if (cacheDirName != null) {
+			cache = new CompileCache(new File(cacheDirName), DEFAULT_CACHE_LIMIT);
+		}
+		if (fragmentDirName != null) {
+			fragmentStore = new FragmentStore(new File(fragmentDirName));
+		}
+		if (stageThreads != null && !batch) {
+			abort("'-s' is only supported in batch mode ('-b')");
+		}
+		if (batch) {
+			Vector<String> args2 = batchInputFileNames;
+			batchInputFileNames = new Vector<String>();
+			for (String arg : args2) {
+				addBatchInput(arg);
+			}
+			if (batchInputFileNames.isEmpty()) abort("No input file name given");
+		}
+		else {
+			if (batchInputFileNames.size() > 1) abort("Too many input file names given");
+			if (batchInputFileNames.isEmpty()) abort("No input file name given");
+			inputFileName = batchInputFileNames.firstElement();
+		}
+	}
+	
+	/**
+	 * parses the per-stage thread counts of a pipelined batch: a
+	 * comma-separated list giving the number of threads for each stage, in
+	 * the order of STAGE_NAMES; if the list is shorter than that, its last
+	 * count is used for the remaining stages
+	 * @param spec the list, e.g., "2,1,1,1,1,1,2"
+	 * @return the thread count of each stage
+	 */
+	private int[] parseStageThreads(String spec) {
+		String[] parts = spec.split(",");
+		if (parts.length > STAGE_NAMES.length) {
+			abort("Too many thread counts in '"+spec+"'");
+		}
+		int[] rtnVal = new int[STAGE_NAMES.length];
+		for (int i = 0; i < rtnVal.length; i++) {
+			String part = parts[Math.min(i, parts.length-1)].trim();
+			try {
+				rtnVal[i] = Integer.parseInt(part);
+			}
+			catch (NumberFormatException nfx) {
+				rtnVal[i] = 0;
+			}
+			if (rtnVal[i] <= 0) abort("Illegal thread count: '"+part+"'");
+		}
+		return rtnVal;
+	}
+	
+	/**
+	 * parses the command line of a compile-server request; options that only
+	 * make sense for a local, interactive run are rejected, as is every
+	 * option that names a file (the server runs as another user, so it must
+	 * not read or write files on the client's behalf; the client handles
+	 * '-o' and '-a' itself, and sends the source). They are rejected before
+	 * the command line is parsed, since parsing '-c' or '-i' already creates
+	 * a directory.
+	 * @param args the command-line arguments
+	 */
+	void parseServerCommandLine(String[] args) {
+		for (String arg : args) {
+			if (arg.equals("-a") || arg.equals("-c") || arg.equals("-i") ||
+					arg.equals("-o") || arg.equals("-stats")) {
+				abort("'"+arg+"' is not supported by the compile server");
 			}
 		}
-		if (inputFileName == null) exitError("No input file name given");
+		parseCommandLine(args);
+		if (batch) abort("Batch mode is not supported by the compile server");
+		if (mode == WINDOW) abort("Window mode is not supported by the compile server");
 	}
 	
 	private void openFiles() {
 				
-		try {
-			inputStream = new FileInputStream(inputFileName); }
-		catch (FileNotFoundException e) {
-			exitError("File not found: " + inputFileName);
+		if (inputData != null) {
+			inputStream = new ByteArrayInputStream(inputData);
+		}
+		else {
+			try {
+				inputStream = MappedInputStream.open(new File(inputFileName)); }
+			catch (FileNotFoundException e) {
+				abort("File not found: " + inputFileName);
+			}
 		}
-		outputStream = System.out;
+		outputStream = stdOutput;
 		if (outputFileName != null) {
 			try {
-				OutputStream os = new FileOutputStream(outputFileName);
-				outputStream = new PrintStream(os);
+				FileOutputStream os = new FileOutputStream(outputFileName);
+				outputChannel = os.getChannel();
+				outputStream = new PrintStream(new BufferedOutputStream(os));
+				fileOutputStream = outputStream;
 			}
 			catch (IOException e) {
-				exitError("Error opening output file: " + outputFileName);
+				abort("Error opening output file: " + outputFileName);
 			}
 		}
-		if (appendFileName != null) {
+		if (appendFileName != null && shareLibrary) {
+			try {
+				appendData = LibraryCache.get(new File(appendFileName)); }
+			catch (IOException e) {
+				abort("File not found: " + appendFileName);
+			}
+		}
+		else if (appendFileName != null) {
 			try {
 				appendStream = new FileInputStream(appendFileName); }
 			catch (FileNotFoundException e) {
-				exitError("File not found: " + appendFileName);
+				abort("File not found: " + appendFileName);
 			}
 		}
 	}
-	private AstNode parseFile() {
+	/**
+	 * if a cache directory was given, looks up the output for this
+	 * compilation; the key covers the compiler version, the input file's
+	 * name (which seeds the output's whitespace) and contents, the pass
+	 * limit and the append-file's contents
+	 * @return whether the output was found (and has been written)
+	 */
+	private boolean lookupCache() throws IOException {
+		if (cache == null || mode != SILENT) return false;
+		beginPhase("cache");
+		readInputData();
+		if (appendStream != null) {
+			appendData = readFully(appendStream);
+		}
+		cacheKey = CompileCache.key(COMPILER_VERSION.getBytes("UTF-8"),
+				inputFileName.getBytes("UTF-8"), inputData,
+				String.valueOf(pass).getBytes("UTF-8"), appendData);
+		byte[] data = cache.lookup(cacheKey);
+		endPhase();
+		if (data != null) {
+			outputStream.write(data, 0, data.length);
+			return true;
+		}
+		cachedOutputStream = outputStream;
+		cacheBuffer = new ByteArrayOutputStream();
+		outputStream = new PrintStream(cacheBuffer);
+		return false;
+	}
+	
+	/**
+	 * writes the output held back by lookupCache, and adds it to the cache
+	 * if the compilation succeeded
+	 */
+	private void storeCache() {
+		if (cacheBuffer == null) return;
+		outputStream.flush();
+		byte[] data = cacheBuffer.toByteArray();
+		outputStream = cachedOutputStream;
+		outputStream.write(data, 0, data.length);
+		if (!errorMsg.anyErrors) {
+			cache.store(cacheKey, data);
+		}
+		cacheBuffer = null;
+	}
+	
+	/**
+	 * reads the whole input file into memory, for the steps that need its
+	 * contents as well as the parser
+	 */
+	private void readInputData() throws IOException {
+		if (inputData != null) return;
+		inputData = readFully(inputStream);
+		inputStream.close();
+		inputStream = new ByteArrayInputStream(inputData);
+	}
+	
+	static byte[] readFully(InputStream is) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		for (;;) {
+			int n = is.read(buf);
+			if (n < 0) break;
+			os.write(buf, 0, n);
+		}
+		return os.toByteArray();
+	}
+	
+	private AstNode parseFile() throws IOException {
 
 		if (SCANNER_ONLY) {
 			// parse the original input, sending its data to the pipe
-			new MJScannerParseTable(new MJScanner(errorMsg, System.out)).parse(inputStream,0,false);	
+			new MJScannerParseTable(new MJScanner(errorMsg, stdOutput)).parse(inputStream,0,false);	
 			return null;
 		}
 		else if (MJGrammar.FILTER_GRAMMAR) {
 			
-			try {
-				
-				ByteArrayOutputStream os = new ByteArrayOutputStream(1000000);
-				// parse the original input, sending its data to the pipe
-				ErrorMsg scannerErrorObject = new ErrorMsg(errorMsg.getFileName());
-				MJScanner scanner = new MJScanner(scannerErrorObject, os);
-				new MJScannerParseTable(scanner).parse(inputStream,0,false);
-
-				if (scannerErrorObject.anyErrors) {
-					errorMsg.error(-1, "Error detected during scanning");
+			if (scanner != TABLE_SCANNER) {
+				byte[] filtered = this.fastScan();
+				if (filtered != null) {
+					// parse the filtered text
+					MJGrammar mj = new MJGrammar(errorMsg);
+					new MJGrammarParseTable(mj).parse(new ByteArrayInputStream(filtered),0,false);
+					return mj.parseResult();
 				}
-				os.close();
-				
-				// create the semantic action object
-				MJGrammar mj = new MJGrammar(errorMsg);
-
-				ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
-
-				// parse the filtered text
+			}
+			
+			// the scanner runs on its own thread, feeding its output through
+			// a bounded pipe to the grammar parser running on this thread
+			final BoundedPipe pipe = new BoundedPipe(PIPE_CHUNK_SIZE, PIPE_CHUNKS);
+			final ErrorMsg scannerErrorObject =
+				new ErrorMsg(errorMsg.getFileName(), diagStream);
+			final InputStream scannerInput = inputStream;
+			final long[] scannerUsage = {-1, -1}; // its CPU time and allocation
+			Thread scannerThread = new Thread(new Runnable() {
+				public void run() {
+					long cpu = ThreadUsage.cpuTime();
+					long alloc = ThreadUsage.allocatedBytes();
+					try {
+						// parse the original input, sending its data to the pipe
+						MJScanner scanner = new MJScanner(scannerErrorObject, pipe.sink());
+						new MJScannerParseTable(scanner).parse(scannerInput,0,false);
+						pipe.sink().close();
+					}
+					catch (Throwable t) {
+						pipe.writerFailed("Scanner failed: "+t);
+					}
+					finally {
+						scannerUsage[0] = ThreadUsage.since(cpu, ThreadUsage.cpuTime());
+						scannerUsage[1] = ThreadUsage.since(alloc, ThreadUsage.allocatedBytes());
+					}
+				}
+			}, "scanner: "+inputFileName);
+			scannerThread.setDaemon(true);
+			scannerThread.start();
+			
+			// create the semantic action object
+			MJGrammar mj = new MJGrammar(errorMsg);
+			
+			// parse the filtered text
+			InputStream is = pipe.source();
+			boolean pipingError = false;
+			try {
 				new MJGrammarParseTable(mj).parse(is,0,false);
-				is.close();
-
-				// return the result of the parse
-				return mj.parseResult();
 			}
-			catch (IOException iox) {
-				System.err.println("Internal piping error.");
+			finally {
+				// even if the parse failed: closing the pipe makes a scanner
+				// that is still writing to it give up, so the join returns
+				try {
+					is.close();
+				}
+				catch (IOException iox) {
+					pipingError = true;
+				}
+				try {
+					scannerThread.join();
+				}
+				catch (InterruptedException ix) {
+					abort("Interrupted while waiting for scanner");
+				}
+			}
+			if (pipingError) {
+				diagStream.println("Internal piping error.");
 				return null;
 			}
+			if (stats != null) {
+				// the join makes the scanner's measurements visible
+				stats.addWork(scannerUsage[0], scannerUsage[1]);
+			}
+			
+			if (scannerErrorObject.anyErrors) {
+				errorMsg.error(-1, "Error detected during scanning");
+			}
+			
+			// return the result of the parse
+			return mj.parseResult();
 		}
 		else {
 			// create the semantic action object
@@ -229,11 +804,80 @@ public class Main5 {
 		}
 	}
 	
+	/**
+	 * scans the input with DfaScanner; in '-verifyscan' mode, also scans it
+	 * with MJScanner, and reports the first place where the two differ
+	 * @return the filtered text, or null if MJScanner must be used instead
+	 * (because the input has errors, or, in '-verifyscan' mode, the two
+	 * scanners disagree)
+	 */
+	private byte[] fastScan() throws IOException {
+		this.readInputData();
+		byte[] rtnVal = DfaScanner.scan(inputData);
+		if (scanner != VERIFY_SCANNERS) return rtnVal;
+		
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		ErrorMsg quiet = new ErrorMsg(inputFileName,
+				new PrintStream(new ByteArrayOutputStream()));
+		new MJScannerParseTable(new MJScanner(quiet, expected)).parse(
+				new ByteArrayInputStream(inputData),0,false);
+		byte[] exp = expected.toByteArray();
+		if (rtnVal == null) {
+			if (!quiet.anyErrors) {
+				errorMsg.info("Scanner mismatch: DfaScanner rejected "+inputFileName+
+						", which MJScanner accepts");
+			}
+			return null;
+		}
+		if (quiet.anyErrors) {
+			errorMsg.info("Scanner mismatch: DfaScanner accepted "+inputFileName+
+					", which MJScanner rejects");
+			return null;
+		}
+		int k = 0;
+		while (k < rtnVal.length && k < exp.length && rtnVal[k] == exp[k]) k++;
+		if (k < rtnVal.length || k < exp.length) {
+			errorMsg.info("Scanner mismatch in "+inputFileName+" at offset "+k+
+					": MJScanner produced "+excerpt(exp, k)+
+					", DfaScanner produced "+excerpt(rtnVal, k));
+			return null;
+		}
+		errorMsg.info("Scanners agree on "+inputFileName+".");
+		return rtnVal;
+	}
+	
+	/**
+	 * the filtered text around a position, for a scanner-mismatch message;
+	 * characters outside the printable range are shown in hex
+	 */
+	private static String excerpt(byte[] text, int pos) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int k = Math.max(0, pos-10); k < Math.min(text.length, pos+10); k++) {
+			int c = text[k] & 0xff;
+			if (c >= ' ' && c <= '~') sb.append((char)c);
+			else sb.append(String.format("\\x%02x", c));
+		}
+		return sb.append('"').toString();
+	}
+	
+	/**
+	 * @return whether the semantic analysis is done by a FusedSemVisitor;
+	 * it is unless the separate passes are asked for, or the compilation
+	 * stops partway through the analysis
+	 */
+	private boolean fusedSemantics() {
+		return !separateSemPasses && pass >= 6;
+	}
+	
 	public Hashtable<String,ClassDecl> semanticPhase1(AstNode ast) {
 		if (!errorMsg.anyErrors && ast != null && pass >= 2) {
+			if (fusedSemantics()) {
+				semantics = new FusedSemVisitor(errorMsg);
+				return SymbolTable.of(semantics.declareClasses((Program)ast));
+			}
 			Sem1Visitor vis = new Sem1Visitor(errorMsg);
 			vis.visit(ast);
-			return vis.getGlobalSymTab();
+			return SymbolTable.of(vis.getGlobalSymTab());
 		}
 		else {
 			return null;
@@ -242,24 +886,49 @@ public class Main5 {
 	
 	public void semanticPhase2(AstNode ast, Hashtable<String,ClassDecl> globalTbl) {
 		if (!errorMsg.anyErrors && ast != null && pass >= 3) {
-			new Sem2Visitor(globalTbl, errorMsg).visit(ast);
+			if (semantics != null) {
+				semantics.linkClasses((Program)ast);
+			}
+			else {
+				new Sem2Visitor(globalTbl, errorMsg).visit(ast);
+			}
+			if (!errorMsg.anyErrors) {
+				// the superclass links are set, and free of cycles
+				ClassDecl.numberHierarchy(globalTbl.values());
+			}
 		}
 	}
 	
 	public void semanticPhase3(AstNode ast, Hashtable<String,ClassDecl> globalTbl) {
 		if (!errorMsg.anyErrors && ast != null && pass >= 4) {
-			new Sem3Visitor(globalTbl, errorMsg).visit(ast);
+			if (semantics != null) {
+				// also does the work of phases 4 and 5
+				semantics.check((Program)ast);
+				if (stats != null) {
+					stats.addWork(semantics.otherCpuNanos(), semantics.otherAllocatedBytes());
+				}
+				if (!errorMsg.anyErrors) {
+					new TypeCanonicalizer().canonicalize(ast, globalTbl);
+				}
+			}
+			else {
+				new Sem3Visitor(globalTbl, errorMsg).visit(ast);
+			}
 		}
 	}
 	
 	public void semanticPhase4(AstNode ast, Hashtable<String,ClassDecl> globalTbl) {
-		if (!errorMsg.anyErrors && ast != null && pass >= 5) {
+		if (!errorMsg.anyErrors && ast != null && pass >= 5 && semantics == null) {
 			new Sem4Visitor(globalTbl, errorMsg).visit(ast);
+			if (!errorMsg.anyErrors) {
+				// the types are checked; share one object per type from here on
+				new TypeCanonicalizer().canonicalize(ast, globalTbl);
+			}
 		}
 	}
 	
 	public void semanticPhase5(AstNode ast, Hashtable<String,ClassDecl> globalTbl) {
-		if (!errorMsg.anyErrors && ast != null && pass >= 6) {
+		if (!errorMsg.anyErrors && ast != null && pass >= 6 && semantics == null) {
 			new Sem5Visitor(errorMsg).visit(ast);
 		}
 	}
@@ -277,25 +946,61 @@ public class Main5 {
 	}
 	
 	public void cgPhase3(AstNode ast) {
-		if (!errorMsg.anyErrors && ast != null && pass >= 9) {
+		if (!errorMsg.anyErrors && ast != null && pass >= 9 && fragmentStore != null) {
+			// incremental mode: reuse the code of unchanged classes
+			File inFile = new File(inputFileName);
+			IncrementalCG3Visitor vis = new IncrementalCG3Visitor(errorMsg,
+					outputStream, inputData, fragmentStore.load(inFile));
+			vis.visit(ast);
+			fragmentStore.save(inFile, vis.getFragments());
+			errorMsg.info("Incremental: reused code for "+vis.numReused()+
+					" of "+(vis.numReused()+vis.numGenerated())+" classes.");
+		}
+		else if (!errorMsg.anyErrors && ast != null && pass >= 9) {
 			new CG3Visitor(errorMsg, outputStream).visit(ast);
 		}
 	}
 	
 	public void appendFile() {
-		if (!errorMsg.anyErrors && appendStream != null && pass >= 10) {
+		if (!errorMsg.anyErrors && (appendData != null || appendStream != null) && pass >= 10) {
 			try {
-				for (;;) {
-					int b = appendStream.read();
-					if (b < 0) break;
-					outputStream.write(b);
+				// when writing to a file, bypass the print stream and hand the
+				// library to the file's channel in bulk
+				boolean toChannel = outputStream == fileOutputStream && outputChannel != null;
+				if (toChannel) {
+					outputStream.flush();
+				}
+				if (appendData != null && toChannel) {
+					ByteBuffer buf = ByteBuffer.wrap(appendData);
+					while (buf.hasRemaining()) {
+						outputChannel.write(buf);
+					}
+				}
+				else if (appendData != null) {
+					outputStream.write(appendData, 0, appendData.length);
+				}
+				else if (toChannel && appendStream instanceof FileInputStream) {
+					FileChannel in = ((FileInputStream)appendStream).getChannel();
+					long size = in.size();
+					for (long pos = 0; pos < size; ) {
+						long n = in.transferTo(pos, size-pos, outputChannel);
+						// nothing is transferred once pos is past the end, as it
+						// is if the file has shrunk since its size was taken
+						if (n <= 0) break;
+						pos += n;
+					}
+				}
+				else {
+					byte[] buf = new byte[8192];
+					for (;;) {
+						int n = appendStream.read(buf);
+						if (n < 0) break;
+						outputStream.write(buf, 0, n);
+					}
 				}
-			}
-			catch (EOFException iox) {
-				System.err.println("EOF exception");
 			}
 			catch (IOException iox) {
-				exitError("Error attempting to process append-file "+appendFileName);
+				abort("Error attempting to process append-file "+appendFileName);
 			}
 		}
 	}
@@ -307,16 +1012,50 @@ public class Main5 {
 			if (appendStream != null) appendStream.close();
 		}
 		catch (IOException iox) {
-			exitError("Error closing files.");
+			abort("Error closing files.");
+		}
+	}
+	
+	/**
+	 * @return the statistics collected for the last compilation, or null if
+	 * none were collected
+	 */
+	PhaseStats getStats() {
+		return stats;
+	}
+	
+	private void beginPhase(String name) {
+		if (stats != null) stats.begin(name);
+	}
+	
+	private void endPhase() {
+		if (stats != null) stats.end();
+	}
+	
+	/**
+	 * in '-stats' mode, prints the per-phase statistics as a table, and
+	 * writes them as JSON to a file named after the input file
+	 */
+	public void reportStats() {
+		if (stats == null || !statsMode) return;
+		stats.printTable(diagStream);
+		String jsonFileName = derivedFileName(inputFileName, STATS_SUFFIX);
+		try {
+			PrintStream ps = new PrintStream(new FileOutputStream(jsonFileName));
+			stats.writeJson(ps);
+			ps.close();
+		}
+		catch (IOException iox) {
+			abort("Error writing statistics file: " + jsonFileName);
 		}
 	}
 	
 	public void printSummaryMessage() {
 		if (errorMsg.anyErrors) {
-			System.err.println("Compilation failed for "+inputFileName+".");
+			diagStream.println("Compilation failed for "+inputFileName+".");
 		}
 		else {
-			System.err.println("Compilation successful for "+inputFileName+".");
+			diagStream.println("Compilation successful for "+inputFileName+".");
 		}
 	}
 	
@@ -340,6 +1079,14 @@ public class Main5 {
 		}
 	}
 	
+	/**
+	 * aborts the current compilation
+	 * @param msg the message describing the problem
+	 */
+	void abort(String msg) {
+		throw new CompileAbortException(msg);
+	}
+	
 	public static void exitError(String msg) {
 		System.err.println(msg);
 		exit(1);
@@ -0,0 +1,110 @@
+package main;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * an input stream over a memory-mapped file (see open)
+ *
+ * The parser reads its input a byte at a time; served from a mapped
+ * buffer, each of those reads is an array-like access rather than a call
+ * into FileInputStream.read(), which goes to the operating system every
+ * time. Bulk reads are served with a single copy out of the mapping.
+ */
+public class MappedInputStream extends InputStream {
+
+	private ByteBuffer buf;
+	private int mark;
+
+	private MappedInputStream(ByteBuffer buf) {
+		this.buf = buf;
+		mark = 0;
+	}
+
+	/**
+	 * opens a file for reading: a regular file through a mapping of the whole
+	 * file, which is closed again right away, since the mapping stays valid
+	 * without it; anything else (a pipe, a FIFO, a device), or a file that
+	 * cannot be mapped, as a buffered stream
+	 * @param f the file
+	 * @return a stream of the file's contents
+	 * @throws FileNotFoundException if the file cannot be opened
+	 */
+	public static InputStream open(File f) throws FileNotFoundException {
+		FileInputStream fis = new FileInputStream(f);
+		ByteBuffer buf = null;
+		if (f.isFile()) {
+			try {
+				FileChannel ch = fis.getChannel();
+				long size = ch.size();
+				// an empty size may be wrong (as for files under /proc), so
+				// such a file is read as a stream
+				if (size > 0 && size <= Integer.MAX_VALUE) {
+					buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				}
+			}
+			catch (IOException e) {
+				// not mappable: read as a stream
+			}
+		}
+		if (buf == null) {
+			return new BufferedInputStream(fis);
+		}
+		try {
+			fis.close();
+		}
+		catch (IOException e) {
+			// the mapping does not depend on the file staying open
+		}
+		return new MappedInputStream(buf);
+	}
+
+	@Override
+	public int read() {
+		return buf.hasRemaining() ? buf.get() & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) return 0;
+		int n = Math.min(len, buf.remaining());
+		if (n == 0) return -1;
+		buf.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n) {
+		int k = (int)Math.max(0, Math.min(n, buf.remaining()));
+		buf.position(buf.position() + k);
+		return k;
+	}
+
+	@Override
+	public int available() {
+		return buf.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public void mark(int readLimit) {
+		mark = buf.position();
+	}
+
+	@Override
+	public void reset() {
+		buf.position(mark);
+	}
+
+	/**
+	 * @return the number of bytes in the file
+	 */
+	public int size() {
+		return buf.limit();
+	}
+}
@@ -0,0 +1,179 @@
+package main;
+
+import java.io.*;
+import java.util.*;
+
+import syntaxtree.AstNode;
+import visitor.CodeStream;
+import visitor.ThreadUsage;
+
+/**
+ * per-phase statistics for one compilation: wall time, CPU time, bytes
+ * allocated, AST nodes created and lines of assembly emitted by each phase.
+ * CPU time and allocation are those of the compiling thread, plus those of
+ * any other threads that a phase hands work to (the scanner's thread, the
+ * semantic checker's pool), as reported with addWork.
+ */
+public class PhaseStats {
+
+	/**
+	 * the measurements for a single phase
+	 */
+	public static class Phase {
+		public final String name;
+		public long wallNanos;
+		public long cpuNanos; // -1 if not supported by the JVM
+		public long allocatedBytes; // -1 if not supported by the JVM
+		public int astNodes;
+		public int linesEmitted;
+
+		Phase(String name) {
+			this.name = name;
+		}
+	}
+
+	private String fileName;
+	private Vector<Phase> phases;
+
+	// the phase currently being measured, and the counters at its start
+	private Phase current;
+	private long startWall;
+	private long startCpu;
+	private long startAlloc;
+	private int startNodes;
+	private int startLines;
+	private long otherCpu; // the current phase's, on other threads
+	private long otherAlloc;
+
+	/**
+	 * constructor
+	 * @param fileName the name of the file being compiled
+	 */
+	public PhaseStats(String fileName) {
+		this.fileName = fileName;
+		phases = new Vector<Phase>();
+	}
+
+	/**
+	 * starts measuring a phase
+	 * @param name the phase's name
+	 */
+	public void begin(String name) {
+		current = new Phase(name);
+		startNodes = AstNode.uniqueIdCount();
+		startLines = CodeStream.emittedCount();
+		otherCpu = 0;
+		otherAlloc = 0;
+		startAlloc = ThreadUsage.allocatedBytes();
+		startCpu = ThreadUsage.cpuTime();
+		startWall = System.nanoTime();
+	}
+
+	/**
+	 * counts work that the current phase had done on other threads
+	 * @param cpuNanos the CPU time used by those threads, or -1 if unknown
+	 * @param allocatedBytes the bytes they allocated, or -1 if unknown
+	 */
+	public synchronized void addWork(long cpuNanos, long allocatedBytes) {
+		otherCpu = ThreadUsage.plus(otherCpu, cpuNanos);
+		otherAlloc = ThreadUsage.plus(otherAlloc, allocatedBytes);
+	}
+
+	/**
+	 * finishes measuring the phase started by the last call to begin
+	 */
+	public synchronized void end() {
+		long wall = System.nanoTime();
+		long cpu = ThreadUsage.cpuTime();
+		long alloc = ThreadUsage.allocatedBytes();
+		current.wallNanos = wall - startWall;
+		current.cpuNanos = ThreadUsage.plus(ThreadUsage.since(startCpu, cpu), otherCpu);
+		current.allocatedBytes =
+			ThreadUsage.plus(ThreadUsage.since(startAlloc, alloc), otherAlloc);
+		current.astNodes = AstNode.uniqueIdCount() - startNodes;
+		current.linesEmitted = CodeStream.emittedCount() - startLines;
+		phases.add(current);
+		current = null;
+	}
+
+	/**
+	 * @return the phases measured so far, in order
+	 */
+	public List<Phase> getPhases() {
+		return Collections.unmodifiableList(phases);
+	}
+
+	/**
+	 * @return the sum of all phases' measurements
+	 */
+	public Phase total() {
+		Phase t = new Phase("total");
+		for (Phase p : phases) {
+			t.wallNanos += p.wallNanos;
+			t.cpuNanos = ThreadUsage.plus(t.cpuNanos, p.cpuNanos);
+			t.allocatedBytes = ThreadUsage.plus(t.allocatedBytes, p.allocatedBytes);
+			t.astNodes += p.astNodes;
+			t.linesEmitted += p.linesEmitted;
+		}
+		return t;
+	}
+
+	/**
+	 * prints the statistics as a human-readable table
+	 * @param out the stream to print to
+	 */
+	public void printTable(PrintStream out) {
+		out.println("Phase statistics for "+fileName+":");
+		out.println(String.format("%-8s %10s %10s %12s %9s %9s",
+				"phase", "wall(ms)", "cpu(ms)", "alloc(KB)", "nodes", "lines"));
+		for (Phase p : phases) {
+			printRow(out, p);
+		}
+		printRow(out, total());
+	}
+
+	private static void printRow(PrintStream out, Phase p) {
+		out.println(String.format("%-8s %10.3f %10s %12s %9d %9d",
+				p.name, p.wallNanos/1e6,
+				p.cpuNanos < 0 ? "n/a" : String.format("%.3f", p.cpuNanos/1e6),
+				p.allocatedBytes < 0 ? "n/a" : String.valueOf(p.allocatedBytes/1024),
+				p.astNodes, p.linesEmitted));
+	}
+
+	/**
+	 * writes the statistics as a JSON object
+	 * @param out the stream to write to
+	 */
+	public void writeJson(PrintStream out) {
+		out.println("{");
+		out.println("  \"file\": \""+jsonEscape(fileName)+"\",");
+		out.println("  \"phases\": [");
+		for (int i = 0; i < phases.size(); i++) {
+			out.println("    "+jsonObject(phases.elementAt(i))+
+					(i+1 < phases.size() ? "," : ""));
+		}
+		out.println("  ],");
+		out.println("  \"total\": "+jsonObject(total()));
+		out.println("}");
+	}
+
+	private static String jsonObject(Phase p) {
+		return "{\"phase\": \""+jsonEscape(p.name)+"\""+
+				", \"wallNanos\": "+p.wallNanos+
+				", \"cpuNanos\": "+p.cpuNanos+
+				", \"allocatedBytes\": "+p.allocatedBytes+
+				", \"astNodes\": "+p.astNodes+
+				", \"linesEmitted\": "+p.linesEmitted+"}";
+	}
+
+	private static String jsonEscape(String s) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') sb.append('\\').append(c);
+			else if (c < ' ') sb.append(String.format("\\u%04x", (int)c));
+			else sb.append(c);
+		}
+		return sb.toString();
+	}
+}
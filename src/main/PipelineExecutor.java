@@ -0,0 +1,132 @@
+package main;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * runs the compilations of a batch as a pipeline: each phase of a
+ * compilation (see Main5.STAGE_NAMES) is a stage with its own worker threads
+ * and its own queue, so that one file can be parsed while an earlier one is
+ * being analyzed and a still earlier one is having its code generated
+ *
+ * The queues are bounded: a stage whose successor falls behind blocks
+ * until there is room, rather than letting compilations (and their ASTs)
+ * pile up in memory. Since the stages of one compilation run in order, and
+ * each hand-over goes through a queue, a compilation produces the same
+ * output as when it is run by a single thread.
+ */
+public class PipelineExecutor {
+
+	// marks the end of a stage's input
+	private static final Main5 END = new Main5();
+
+	private int[] numThreads;
+	private Vector<BlockingQueue<Main5>> queues;
+	private AtomicInteger[] numRunning;
+
+	/**
+	 * constructor
+	 * @param numThreads the number of worker threads of each stage
+	 * @param queueCapacity the number of compilations that may wait in front
+	 * of each stage
+	 */
+	public PipelineExecutor(int[] numThreads, int queueCapacity) {
+		this.numThreads = numThreads;
+		queues = new Vector<BlockingQueue<Main5>>();
+		numRunning = new AtomicInteger[numThreads.length];
+		for (int i = 0; i < numThreads.length; i++) {
+			queues.add(new ArrayBlockingQueue<Main5>(queueCapacity));
+			numRunning[i] = new AtomicInteger(numThreads[i]);
+		}
+	}
+
+	/**
+	 * runs the compilations, and waits for all of them to finish; a
+	 * compilation that is aborted is reported on its diagnostic stream and
+	 * goes no further down the pipeline
+	 * @param jobs the compilations, each with its error-message object set
+	 * @throws InterruptedException if the calling thread is interrupted
+	 */
+	public void run(List<Main5> jobs) throws InterruptedException {
+		Vector<Thread> workers = new Vector<Thread>();
+		for (int i = 0; i < numThreads.length; i++) {
+			for (int k = 0; k < numThreads[i]; k++) {
+				final int stage = i;
+				Thread t = new Thread(new Runnable() {
+					public void run() {
+						work(stage);
+					}
+				}, "stage-"+Main5.STAGE_NAMES[i]+"-"+(k+1));
+				t.setDaemon(true);
+				workers.add(t);
+				t.start();
+			}
+		}
+		try {
+			for (Main5 job : jobs) {
+				queues.firstElement().put(job);
+			}
+			for (int k = 0; k < numThreads[0]; k++) {
+				queues.firstElement().put(END);
+			}
+			for (Thread t : workers) {
+				t.join();
+			}
+		}
+		finally {
+			for (Thread t : workers) {
+				t.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * the body of a worker thread: runs its stage for each compilation in
+	 * the stage's queue, and passes the compilation on to the next stage;
+	 * the last worker of a stage to see END passes END on to each worker of
+	 * the next stage
+	 * @param stage the stage
+	 */
+	private void work(int stage) {
+		boolean last = stage+1 == numThreads.length;
+		try {
+			for (;;) {
+				Main5 job = queues.elementAt(stage).take();
+				if (job == END) break;
+				if (runStage(job, stage) && !last) {
+					queues.elementAt(stage+1).put(job);
+				}
+			}
+			if (numRunning[stage].decrementAndGet() == 0 && !last) {
+				for (int k = 0; k < numThreads[stage+1]; k++) {
+					queues.elementAt(stage+1).put(END);
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			// the batch has been abandoned
+		}
+	}
+
+	/**
+	 * runs one stage of a compilation
+	 * @param job the compilation
+	 * @param stage the stage
+	 * @return whether the compilation may go on to the next stage
+	 */
+	private static boolean runStage(Main5 job, int stage) {
+		try {
+			job.runStage(stage);
+			return true;
+		}
+		catch (CompileAbortException e) {
+			job.diagStream.println(e.getMessage());
+		}
+		catch (Error e) {
+			e.printStackTrace(job.diagStream);
+		}
+		job.errorMsg.anyErrors = true;
+		return false;
+	}
+}
@@ -0,0 +1,152 @@
+package main;
+
+import java.io.*;
+import java.util.*;
+
+import errorMsg.ErrorMsg;
+import parse.*;
+import syntaxtree.*;
+import visitor.*;
+
+/**
+ * compares the speed of a walk of the AST by ASTvisitor, which reaches each
+ * node through its accept method, with that of a walk by DispatchVisitor,
+ * which switches on the node's kind
+ *
+ * usage: java main.VisitorBench [-n rounds] file.java ...
+ *
+ * The files are parsed once; then, in each round, the ASTs are walked by
+ * each visitor in turn, several times, and the time of the fastest walk is
+ * kept. The first rounds give the JIT time to compile the walks; the
+ * report is of the median of the rest, in nodes visited per second.
+ */
+public class VisitorBench {
+
+	private static final int DEFAULT_ROUNDS = 20;
+	private static final int WALKS_PER_ROUND = 5;
+
+	/**
+	 * counts the nodes that ASTvisitor visits
+	 */
+	static class AcceptCounter extends ASTvisitor {
+		long count;
+
+		@Override
+		public Object visitAstNode(AstNode n) {
+			count++;
+			return null;
+		}
+	}
+
+	/**
+	 * counts the nodes that DispatchVisitor visits
+	 */
+	static class DispatchCounter extends DispatchVisitor {
+		long count;
+
+		@Override
+		public Object visitAstNode(AstNode n) {
+			count++;
+			return null;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int rounds = DEFAULT_ROUNDS;
+		Vector<AstNode> asts = new Vector<AstNode>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-n") && i+1 < args.length) {
+				rounds = Integer.parseInt(args[++i]);
+			}
+			else {
+				asts.add(parse(args[i]));
+			}
+		}
+		if (asts.isEmpty() || rounds < 2) {
+			System.err.println("usage: java main.VisitorBench [-n rounds] file.java ...");
+			System.exit(1);
+		}
+
+		long[] acceptNanos = new long[rounds];
+		long[] dispatchNanos = new long[rounds];
+		long acceptNodes = 0;
+		long dispatchNodes = 0;
+		for (int r = 0; r < rounds; r++) {
+			acceptNanos[r] = Long.MAX_VALUE;
+			dispatchNanos[r] = Long.MAX_VALUE;
+			for (int w = 0; w < WALKS_PER_ROUND; w++) {
+				AcceptCounter ac = new AcceptCounter();
+				long start = System.nanoTime();
+				for (AstNode ast : asts) {
+					ac.visit(ast);
+				}
+				acceptNanos[r] = Math.min(acceptNanos[r], System.nanoTime()-start);
+				acceptNodes = ac.count;
+
+				DispatchCounter dc = new DispatchCounter();
+				start = System.nanoTime();
+				for (AstNode ast : asts) {
+					dc.dispatch(ast);
+				}
+				dispatchNanos[r] = Math.min(dispatchNanos[r], System.nanoTime()-start);
+				dispatchNodes = dc.count;
+			}
+		}
+		if (acceptNodes != dispatchNodes) {
+			System.err.println("The walks visited different numbers of nodes: "+
+					acceptNodes+" and "+dispatchNodes);
+			System.exit(1);
+		}
+
+		// the later half of the rounds is taken as warmed up
+		long acceptTime = median(acceptNanos, rounds/2);
+		long dispatchTime = median(dispatchNanos, rounds/2);
+		System.out.println("nodes per walk: "+acceptNodes);
+		report("ASTvisitor (accept)", acceptNodes, acceptTime);
+		report("DispatchVisitor (switch)", dispatchNodes, dispatchTime);
+		System.out.printf("speedup: %.2fx%n", (double)acceptTime/dispatchTime);
+	}
+
+	private static void report(String name, long nodes, long nanos) {
+		System.out.printf("%-26s %10.3f ms/walk %14.0f nodes/s%n",
+				name, nanos/1e6, nodes*1e9/nanos);
+	}
+
+	private static long median(long[] times, int first) {
+		long[] rest = Arrays.copyOfRange(times, first, times.length);
+		Arrays.sort(rest);
+		return rest[rest.length/2];
+	}
+
+	/**
+	 * parses a source file
+	 * @param fileName the file's name
+	 * @return its AST
+	 */
+	private static AstNode parse(String fileName) throws IOException {
+		byte[] src;
+		InputStream is = new FileInputStream(fileName);
+		try {
+			src = Main5.readFully(is);
+		}
+		finally {
+			is.close();
+		}
+		ErrorMsg errorMsg = new ErrorMsg(fileName);
+		byte[] input = src;
+		if (MJGrammar.FILTER_GRAMMAR) {
+			input = DfaScanner.scan(src);
+			if (input == null) {
+				throw new IOException("Error detected during scanning: "+fileName);
+			}
+		}
+		AstNode.resetUniqueIdCounter();
+		MJGrammar mj = new MJGrammar(errorMsg);
+		new MJGrammarParseTable(mj).parse(new ByteArrayInputStream(input), 0, false);
+		AstNode rtnVal = mj.parseResult();
+		if (errorMsg.anyErrors || rtnVal == null) {
+			throw new IOException("Syntax error: "+fileName);
+		}
+		return rtnVal;
+	}
+}
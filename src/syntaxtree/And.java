@@ -14,6 +14,7 @@ public class And extends BinExp {
 	 */
 	public And(int pos, Exp ae1, Exp ae2) { 
 		super(pos, ae1, ae2);
+		kind = NodeKind.AND;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -15,6 +15,7 @@ public class ArrayLength extends UnExp {
 	 */
 	public ArrayLength(int pos, Exp arrExp) {
 		super(pos, arrExp);
+		kind = NodeKind.ARRAY_LENGTH;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
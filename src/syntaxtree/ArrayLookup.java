@@ -20,6 +20,7 @@ public class ArrayLookup extends Exp {
 	 */
 	public ArrayLookup(int pos, Exp aarrExp, Exp aidxExp) {
 		super(pos);
+		kind = NodeKind.ARRAY_LOOKUP;
 		arrExp=aarrExp; idxExp=aidxExp;
 	}
 
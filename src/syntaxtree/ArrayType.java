@@ -16,6 +16,7 @@ public class ArrayType extends Type {
 	 */
 	public ArrayType(int pos, Type base) {
 		super(pos);
+		kind = NodeKind.ARRAY_TYPE;
 		baseType = base;
 	}
 	
@@ -20,6 +20,7 @@ public class Assign extends Statement {
 	 */
 	public Assign(int pos, Exp alhs, Exp arhs) {
 		super(pos);
+		kind = NodeKind.ASSIGN;
 		lhs = alhs;
 		rhs = arhs;
 	}
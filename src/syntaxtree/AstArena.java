@@ -0,0 +1,911 @@
+package syntaxtree;
+
+import java.util.*;
+
+import visitor.ArenaVisitor;
+
+/**
+ * an AST kept as parallel arrays of primitives, rather than as one object
+ * per node
+ *
+ * Node i of an arena has kind kinds[i] (a NodeKind, or one of the list
+ * kinds below), position positions[i] and unique ID ids[i]; its children
+ * are children[firstChild[i]] through children[firstChild[i]+childCount[i]-1],
+ * in the order of the fields of its class (below), with -1 for a missing
+ * child. A list is a node of its own, whose children are its elements.
+ * Besides those, each node has three ints whose meaning depends on its
+ * kind:
+ *
+ *   values: the index in strings of the name of a declaration, variable,
+ *     class type, called method or accessed instance variable, or of the
+ *     text of a string literal; or the value of an integer literal
+ *   offsets: the offset of a variable, the v-table offset of a method, the
+ *     stack height of a loop or switch, or the index in strings of the
+ *     name of a class's superclass
+ *   links: the node that a variable, class type, call, instance-variable
+ *     access, break, case or default label, class or method is linked to
+ *
+ * and each expression has in typeIds the node of its type. A type or a
+ * linked declaration that is not in the tree (a canonical type, or a
+ * predefined class) is added to the arena as a node with no parent; a
+ * canonical type that is in the tree is the child of each node it is a
+ * type of.
+ *
+ * The children of the nodes are, by kind:
+ *
+ *   binary expressions: left, right
+ *   ArrayLength, Not, Case, InstVarAccess: exp
+ *   ArrayLookup: arrExp, idxExp
+ *   ArrayType: baseType
+ *   Assign: lhs, rhs
+ *   Block: stmts
+ *   Call: obj, parms
+ *   CallStatement: callExp
+ *   Cast: castType, exp
+ *   ClassDecl: decls
+ *   FormalDecl, InstVarDecl: type
+ *   If: exp, trueStmt, falseStmt
+ *   InstanceOf: exp, checkType
+ *   LocalDeclStatement: localVarDecl
+ *   LocalVarDecl: type, initExp
+ *   MethodDeclVoid: formals, stmts
+ *   MethodDeclNonVoid: rtnType, formals, stmts, rtnExp
+ *   NewArray: objType, sizeExp
+ *   NewObject: objType
+ *   Program: mainStatement, classDecls
+ *   Switch: exp, stmts
+ *   While: exp, body
+ *
+ * Converting a tree to an arena (fromNodes) and back (toNodes) gives a tree
+ * with the same structure, positions, unique IDs, names, values, types,
+ * links and offsets; a type that was canonical (see Types) is canonical
+ * again. The rest of what the later phases fill in (a class's symbol tables,
+ * subclasses, numbering and v-table, a method's class, a class's counts of
+ * instance variables) is not kept, and is left as the node's constructor
+ * leaves it.
+ */
+public class AstArena {
+
+	// the kinds of the list nodes, after those of NodeKind
+	public static final int CLASS_DECL_LIST = NodeKind.COUNT;
+	public static final int DECL_LIST = NodeKind.COUNT+1;
+	public static final int EXP_LIST = NodeKind.COUNT+2;
+	public static final int STATEMENT_LIST = NodeKind.COUNT+3;
+	public static final int VAR_DECL_LIST = NodeKind.COUNT+4;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	// the nodes
+	private int size;
+	private byte[] kinds;
+	private int[] positions;
+	private int[] ids;
+	private int[] firstChild;
+	private int[] childCount;
+	private int[] values;
+	private int[] offsets;
+	private int[] typeIds;
+	private int[] links;
+
+	// the children of all the nodes
+	private int numChildren;
+	private int[] children;
+
+	// the names and string literals, each once
+	private Vector<String> strings;
+	private HashMap<String,Integer> stringIndex;
+
+	// while converting from nodes: the index of each node converted so far,
+	// and the references to nodes that are not converted yet
+	private IdentityHashMap<AstNode,Integer> indexOf;
+	private Vector<AstNode> refTargets;
+	private Vector<int[]> refSources; // {node, 0 for a type, 1 for a link}
+
+	private AstArena() {
+		kinds = new byte[INITIAL_CAPACITY];
+		positions = new int[INITIAL_CAPACITY];
+		ids = new int[INITIAL_CAPACITY];
+		firstChild = new int[INITIAL_CAPACITY];
+		childCount = new int[INITIAL_CAPACITY];
+		values = new int[INITIAL_CAPACITY];
+		offsets = new int[INITIAL_CAPACITY];
+		typeIds = new int[INITIAL_CAPACITY];
+		links = new int[INITIAL_CAPACITY];
+		children = new int[INITIAL_CAPACITY];
+		strings = new Vector<String>();
+		stringIndex = new HashMap<String,Integer>();
+	}
+
+	/*************** access ****************/
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the root of the tree: node 0
+	 */
+	public int root() {
+		return 0;
+	}
+
+	public int kind(int node) {
+		return kinds[node];
+	}
+
+	public int pos(int node) {
+		return positions[node];
+	}
+
+	public int uniqueId(int node) {
+		return ids[node];
+	}
+
+	public int childCount(int node) {
+		return childCount[node];
+	}
+
+	/**
+	 * @param node a node
+	 * @param i the index of one of its children
+	 * @return the child, or -1 if it is missing
+	 */
+	public int child(int node, int i) {
+		if (i < 0 || i >= childCount[node]) {
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+		return children[firstChild[node]+i];
+	}
+
+	/**
+	 * @param node a node with a name or a string value
+	 * @return the name or string
+	 */
+	public String string(int node) {
+		return strings.elementAt(values[node]);
+	}
+
+	/**
+	 * @param node an integer literal
+	 * @return its value
+	 */
+	public int intValue(int node) {
+		return values[node];
+	}
+
+	/**
+	 * @param node a class
+	 * @return the name of its superclass
+	 */
+	public String superName(int node) {
+		return strings.elementAt(offsets[node]);
+	}
+
+	public int offset(int node) {
+		return offsets[node];
+	}
+
+	/**
+	 * @param node an expression
+	 * @return the node of its type, or -1 if it has none
+	 */
+	public int type(int node) {
+		return typeIds[node];
+	}
+
+	/**
+	 * @param node a node
+	 * @return the node it is linked to, or -1 if it has no link
+	 */
+	public int link(int node) {
+		return links[node];
+	}
+
+	/**
+	 * @return the number of bytes taken up by the nodes, children and
+	 * strings (not counting the overhead of the array and string objects)
+	 */
+	public long footprint() {
+		long rtnVal = (long)size*(1+8*4) + (long)numChildren*4;
+		for (String s : strings) {
+			rtnVal += 2*s.length();
+		}
+		return rtnVal;
+	}
+
+	/*************** cursors ****************/
+
+	/**
+	 * @return a cursor at the root
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * walks the tree, depth first; a node is entered before its children,
+	 * and left after them
+	 * @param v the visitor
+	 */
+	public void walk(ArenaVisitor v) {
+		Cursor c = cursor();
+		if (!v.enter(c) || !c.toFirstChild()) {
+			v.leave(c);
+			return;
+		}
+		for (;;) {
+			if (v.enter(c) && c.toFirstChild()) continue;
+			v.leave(c);
+			while (!c.toNextSibling()) {
+				c.toParent();
+				v.leave(c);
+				if (c.depth() == 0) return;
+			}
+		}
+	}
+
+	/**
+	 * a position in the tree, which can be moved from a node to its parent,
+	 * its children and its siblings; a missing child is skipped
+	 */
+	public class Cursor {
+
+		private int node;
+		private int depth;
+		private int[] parents = new int[16]; // the nodes above this one
+		private int[] childIndexes = new int[16]; // the index of each in its parent
+
+		private Cursor() {
+			node = root();
+		}
+
+		public int node() {
+			return node;
+		}
+
+		public int depth() {
+			return depth;
+		}
+
+		public int kind() {
+			return kinds[node];
+		}
+
+		public int pos() {
+			return positions[node];
+		}
+
+		public int childCount() {
+			return childCount[node];
+		}
+
+		public String string() {
+			return AstArena.this.string(node);
+		}
+
+		public int intValue() {
+			return values[node];
+		}
+
+		public int offset() {
+			return offsets[node];
+		}
+
+		public int type() {
+			return typeIds[node];
+		}
+
+		public int link() {
+			return links[node];
+		}
+
+		/**
+		 * moves to the first child that is not missing
+		 * @return whether there is one
+		 */
+		public boolean toFirstChild() {
+			return toChildFrom(node, 0);
+		}
+
+		/**
+		 * moves to the next sibling that is not missing
+		 * @return whether there is one
+		 */
+		public boolean toNextSibling() {
+			if (depth == 0) return false;
+			int parent = parents[depth-1];
+			int i = childIndexes[depth-1];
+			depth--;
+			if (toChildFrom(parent, i+1)) return true;
+			depth++;
+			return false;
+		}
+
+		/**
+		 * moves to the parent
+		 * @return whether there is one
+		 */
+		public boolean toParent() {
+			if (depth == 0) return false;
+			depth--;
+			node = parents[depth];
+			return true;
+		}
+
+		private boolean toChildFrom(int parent, int first) {
+			for (int i = first; i < childCount[parent]; i++) {
+				int child = children[firstChild[parent]+i];
+				if (child >= 0) {
+					if (depth == parents.length) {
+						parents = Arrays.copyOf(parents, 2*depth);
+						childIndexes = Arrays.copyOf(childIndexes, 2*depth);
+					}
+					parents[depth] = parent;
+					childIndexes[depth] = i;
+					depth++;
+					node = child;
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/*************** conversion from nodes ****************/
+
+	/**
+	 * @param root the root of a tree
+	 * @return an arena holding the tree, with the root as node 0
+	 */
+	public static AstArena fromNodes(AstNode root) {
+		AstArena arena = new AstArena();
+		arena.indexOf = new IdentityHashMap<AstNode,Integer>();
+		arena.refTargets = new Vector<AstNode>();
+		arena.refSources = new Vector<int[]>();
+		arena.add(root);
+		// converting a referenced node may add more references
+		for (int i = 0; i < arena.refTargets.size(); i++) {
+			AstNode target = arena.refTargets.elementAt(i);
+			Integer idx = arena.indexOf.get(target);
+			int[] src = arena.refSources.elementAt(i);
+			int targetIdx = idx != null ? idx : arena.add(target);
+			if (src[1] == 0) {
+				arena.typeIds[src[0]] = targetIdx;
+			}
+			else {
+				arena.links[src[0]] = targetIdx;
+			}
+		}
+		arena.indexOf = null;
+		arena.refTargets = null;
+		arena.refSources = null;
+		arena.trim();
+		return arena;
+	}
+
+	/**
+	 * gives back the room that the arrays were grown by and no node took,
+	 * and the index of the strings, which is needed only while adding nodes
+	 */
+	private void trim() {
+		kinds = Arrays.copyOf(kinds, size);
+		positions = Arrays.copyOf(positions, size);
+		ids = Arrays.copyOf(ids, size);
+		firstChild = Arrays.copyOf(firstChild, size);
+		childCount = Arrays.copyOf(childCount, size);
+		values = Arrays.copyOf(values, size);
+		offsets = Arrays.copyOf(offsets, size);
+		typeIds = Arrays.copyOf(typeIds, size);
+		links = Arrays.copyOf(links, size);
+		children = Arrays.copyOf(children, numChildren);
+		strings.trimToSize();
+		stringIndex = null;
+	}
+
+	/**
+	 * adds a node, and its subtree
+	 * @param n the node
+	 * @return its index, or -1 if it is null
+	 */
+	private int add(AstNode n) {
+		if (n == null) return -1;
+		Integer idx = indexOf.get(n);
+		if (idx != null) return idx; // a shared (canonical) type
+		int node = newNode(n.kind, n.pos, n.uniqueId);
+		indexOf.put(n, node);
+		if (n instanceof Exp) {
+			ref(node, 0, ((Exp)n).type);
+		}
+		switch (n.kind) {
+			case NodeKind.AND:
+			case NodeKind.DIVIDE:
+			case NodeKind.EQUALS:
+			case NodeKind.GREATER_THAN:
+			case NodeKind.LESS_THAN:
+			case NodeKind.MINUS:
+			case NodeKind.OR:
+			case NodeKind.PLUS:
+			case NodeKind.REMAINDER:
+			case NodeKind.TIMES:
+				addChildren(node, ((BinExp)n).left, ((BinExp)n).right);
+				break;
+			case NodeKind.ARRAY_LENGTH:
+			case NodeKind.NOT:
+				addChildren(node, ((UnExp)n).exp);
+				break;
+			case NodeKind.ARRAY_LOOKUP:
+				addChildren(node, ((ArrayLookup)n).arrExp, ((ArrayLookup)n).idxExp);
+				break;
+			case NodeKind.ARRAY_TYPE:
+				addChildren(node, ((ArrayType)n).baseType);
+				break;
+			case NodeKind.ASSIGN:
+				addChildren(node, ((Assign)n).lhs, ((Assign)n).rhs);
+				break;
+			case NodeKind.BLOCK:
+				addChildren(node, 1);
+				setChild(node, 0, addList(STATEMENT_LIST, ((Block)n).stmts));
+				break;
+			case NodeKind.BREAK:
+				ref(node, 1, ((Break)n).breakLink);
+				break;
+			case NodeKind.CALL: {
+				Call c = (Call)n;
+				values[node] = string(c.methName);
+				ref(node, 1, c.methodLink);
+				addChildren(node, 2);
+				setChild(node, 0, add(c.obj));
+				setChild(node, 1, addList(EXP_LIST, c.parms));
+				break;
+			}
+			case NodeKind.CALL_STATEMENT:
+				addChildren(node, ((CallStatement)n).callExp);
+				break;
+			case NodeKind.CASE:
+				ref(node, 1, ((Case)n).enclosingSwitch);
+				addChildren(node, ((Case)n).exp);
+				break;
+			case NodeKind.CAST:
+				addChildren(node, ((Cast)n).castType, ((Cast)n).exp);
+				break;
+			case NodeKind.CLASS_DECL: {
+				ClassDecl cd = (ClassDecl)n;
+				values[node] = string(cd.name);
+				offsets[node] = string(cd.superName);
+				ref(node, 1, cd.superLink);
+				addChildren(node, 1);
+				setChild(node, 0, addList(DECL_LIST, cd.decls));
+				break;
+			}
+			case NodeKind.DEFAULT:
+				ref(node, 1, ((Default)n).enclosingSwitch);
+				break;
+			case NodeKind.FORMAL_DECL:
+			case NodeKind.INST_VAR_DECL:
+				values[node] = string(((VarDecl)n).name);
+				offsets[node] = ((VarDecl)n).offset;
+				addChildren(node, ((VarDecl)n).type);
+				break;
+			case NodeKind.IDENTIFIER_EXP:
+				values[node] = string(((IdentifierExp)n).name);
+				ref(node, 1, ((IdentifierExp)n).link);
+				break;
+			case NodeKind.IDENTIFIER_TYPE:
+				values[node] = string(((IdentifierType)n).name);
+				ref(node, 1, ((IdentifierType)n).link);
+				break;
+			case NodeKind.IF:
+				addChildren(node, ((If)n).exp, ((If)n).trueStmt, ((If)n).falseStmt);
+				break;
+			case NodeKind.INST_VAR_ACCESS:
+				values[node] = string(((InstVarAccess)n).varName);
+				ref(node, 1, ((InstVarAccess)n).varDec);
+				addChildren(node, ((InstVarAccess)n).exp);
+				break;
+			case NodeKind.INSTANCE_OF:
+				addChildren(node, ((InstanceOf)n).exp, ((InstanceOf)n).checkType);
+				break;
+			case NodeKind.INTEGER_LITERAL:
+				values[node] = ((IntegerLiteral)n).val;
+				break;
+			case NodeKind.LOCAL_DECL_STATEMENT:
+				addChildren(node, ((LocalDeclStatement)n).localVarDecl);
+				break;
+			case NodeKind.LOCAL_VAR_DECL:
+				values[node] = string(((LocalVarDecl)n).name);
+				offsets[node] = ((LocalVarDecl)n).offset;
+				addChildren(node, ((LocalVarDecl)n).type, ((LocalVarDecl)n).initExp);
+				break;
+			case NodeKind.METHOD_DECL_VOID:
+			case NodeKind.METHOD_DECL_NON_VOID: {
+				MethodDecl md = (MethodDecl)n;
+				values[node] = string(md.name);
+				offsets[node] = md.vtableOffset;
+				ref(node, 1, md.superMethod);
+				if (n.kind == NodeKind.METHOD_DECL_VOID) {
+					addChildren(node, 2);
+					setChild(node, 0, addList(VAR_DECL_LIST, md.formals));
+					setChild(node, 1, addList(STATEMENT_LIST, md.stmts));
+				}
+				else {
+					MethodDeclNonVoid mdnv = (MethodDeclNonVoid)md;
+					addChildren(node, 4);
+					setChild(node, 0, add(mdnv.rtnType));
+					setChild(node, 1, addList(VAR_DECL_LIST, md.formals));
+					setChild(node, 2, addList(STATEMENT_LIST, md.stmts));
+					setChild(node, 3, add(mdnv.rtnExp));
+				}
+				break;
+			}
+			case NodeKind.NEW_ARRAY:
+				addChildren(node, ((NewArray)n).objType, ((NewArray)n).sizeExp);
+				break;
+			case NodeKind.NEW_OBJECT:
+				addChildren(node, ((NewObject)n).objType);
+				break;
+			case NodeKind.PROGRAM:
+				addChildren(node, 2);
+				setChild(node, 0, add(((Program)n).mainStatement));
+				setChild(node, 1, addList(CLASS_DECL_LIST, ((Program)n).classDecls));
+				break;
+			case NodeKind.STRING_LITERAL:
+				values[node] = string(((StringLiteral)n).str);
+				break;
+			case NodeKind.SWITCH:
+				offsets[node] = ((Switch)n).stackHeight;
+				addChildren(node, 2);
+				setChild(node, 0, add(((Switch)n).exp));
+				setChild(node, 1, addList(STATEMENT_LIST, ((Switch)n).stmts));
+				break;
+			case NodeKind.WHILE:
+				offsets[node] = ((While)n).stackHeight;
+				addChildren(node, ((While)n).exp, ((While)n).body);
+				break;
+			case NodeKind.BOOLEAN_TYPE:
+			case NodeKind.FALSE:
+			case NodeKind.INTEGER_TYPE:
+			case NodeKind.NULL:
+			case NodeKind.NULL_TYPE:
+			case NodeKind.SUPER:
+			case NodeKind.THIS:
+			case NodeKind.TRUE:
+			case NodeKind.VOID_TYPE:
+				break;
+			default:
+				throw new IllegalArgumentException("Node with no kind: "+n);
+		}
+		return node;
+	}
+
+	/**
+	 * adds a list, and its elements' subtrees
+	 * @return the list's index, or -1 if it is null
+	 */
+	private int addList(int listKind, AstList<? extends AstNode> lst) {
+		if (lst == null) return -1;
+		int node = newNode(listKind, -1, -1);
+		addChildren(node, lst.size());
+		for (int i = 0; i < lst.size(); i++) {
+			setChild(node, i, add(lst.elementAt(i)));
+		}
+		return node;
+	}
+
+	/**
+	 * adds a node's children, in order
+	 */
+	private void addChildren(int node, AstNode... nodes) {
+		addChildren(node, nodes.length);
+		for (int i = 0; i < nodes.length; i++) {
+			setChild(node, i, add(nodes[i]));
+		}
+	}
+
+	/**
+	 * sets one of a node's children; the child is added before the pool is
+	 * indexed, since adding it may grow the pool
+	 * @param k the child's place among the node's children
+	 * @param child the child's index, as returned by add or addList
+	 */
+	private void setChild(int node, int k, int child) {
+		children[firstChild[node]+k] = child;
+	}
+
+	/**
+	 * sets aside room for a node's children, which must be its next ones
+	 */
+	private void addChildren(int node, int count) {
+		if (numChildren+count > children.length) {
+			children = Arrays.copyOf(children, Math.max(2*children.length, numChildren+count));
+		}
+		firstChild[node] = numChildren;
+		childCount[node] = count;
+		numChildren += count;
+	}
+
+	/**
+	 * records a reference to a node, to be set once all the nodes are added
+	 * @param node the referring node
+	 * @param field 0 for its type, 1 for its link
+	 * @param target the node referred to, or null
+	 */
+	private void ref(int node, int field, AstNode target) {
+		if (target == null) return;
+		refTargets.add(target);
+		refSources.add(new int[]{node, field});
+	}
+
+	private int newNode(int kind, int pos, int id) {
+		if (size == kinds.length) {
+			int capacity = 2*size;
+			kinds = Arrays.copyOf(kinds, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+			ids = Arrays.copyOf(ids, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			childCount = Arrays.copyOf(childCount, capacity);
+			values = Arrays.copyOf(values, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+			typeIds = Arrays.copyOf(typeIds, capacity);
+			links = Arrays.copyOf(links, capacity);
+		}
+		kinds[size] = (byte)kind;
+		positions[size] = pos;
+		ids[size] = id;
+		typeIds[size] = -1;
+		links[size] = -1;
+		return size++;
+	}
+
+	private int string(String s) {
+		if (s == null) return -1;
+		Integer rtnVal = stringIndex.get(s);
+		if (rtnVal == null) {
+			rtnVal = strings.size();
+			strings.add(s);
+			stringIndex.put(s, rtnVal);
+		}
+		return rtnVal;
+	}
+
+	/*************** conversion to nodes ****************/
+
+	/**
+	 * converts the arena to nodes; the nodes keep the unique IDs they had
+	 * in the tree the arena was made from, and the conversion does not
+	 * change the current thread's unique-ID counter
+	 * @return the root of the tree
+	 */
+	public AstNode toNodes() {
+		int[] counter = AstNode.getUniqueIdCounter();
+		int nextId = counter[0];
+		AstNode[] nodes = new AstNode[size];
+
+		// a node's index is below those of its subtree, so this reaches the
+		// root of each subtree first
+		for (int i = 0; i < size; i++) {
+			if (nodes[i] == null && kinds[i] < NodeKind.COUNT) {
+				build(i, nodes);
+			}
+		}
+
+		// the links first, since a canonical class type is found by its link
+		for (int i = 0; i < size; i++) {
+			if (links[i] >= 0) setLink(nodes[i], nodes[links[i]]);
+		}
+		for (int i = 0; i < size; i++) {
+			if (typeIds[i] >= 0) {
+				((Exp)nodes[i]).type = type(typeIds[i], nodes);
+			}
+			if (kinds[i] < NodeKind.COUNT) {
+				canonicalizeChildren(i, nodes);
+				nodes[i].uniqueId = ids[i];
+			}
+		}
+		counter[0] = nextId;
+		return nodes[0];
+	}
+
+	/**
+	 * @return the type at a node, made canonical if it was canonical when
+	 * the arena was made
+	 */
+	private Type type(int i, AstNode[] nodes) {
+		Type t = (Type)nodes[i];
+		return ids[i] < 0 ? Types.canonical(t) : t;
+	}
+
+	/**
+	 * puts a node's canonical types, as children, back in place
+	 */
+	private void canonicalizeChildren(int i, AstNode[] nodes) {
+		AstNode n = nodes[i];
+		int c = firstChild[i];
+		switch (kinds[i]) {
+			case NodeKind.CAST:
+				((Cast)n).castType = type(children[c], nodes);
+				break;
+			case NodeKind.INSTANCE_OF:
+				((InstanceOf)n).checkType = type(children[c+1], nodes);
+				break;
+			case NodeKind.NEW_ARRAY:
+				((NewArray)n).objType = type(children[c], nodes);
+				break;
+			case NodeKind.NEW_OBJECT:
+				((NewObject)n).objType = (IdentifierType)type(children[c], nodes);
+				break;
+			case NodeKind.FORMAL_DECL:
+			case NodeKind.INST_VAR_DECL:
+			case NodeKind.LOCAL_VAR_DECL:
+				((VarDecl)n).type = type(children[c], nodes);
+				break;
+			case NodeKind.METHOD_DECL_NON_VOID:
+				((MethodDeclNonVoid)n).rtnType = type(children[c], nodes);
+				break;
+		}
+	}
+
+	private static void setLink(AstNode n, AstNode target) {
+		switch (n.kind) {
+			case NodeKind.BREAK: ((Break)n).breakLink = (BreakTarget)target; break;
+			case NodeKind.CALL: ((Call)n).methodLink = (MethodDecl)target; break;
+			case NodeKind.CASE:
+			case NodeKind.DEFAULT: ((Label)n).enclosingSwitch = (Switch)target; break;
+			case NodeKind.CLASS_DECL: ((ClassDecl)n).superLink = (ClassDecl)target; break;
+			case NodeKind.IDENTIFIER_EXP: ((IdentifierExp)n).link = (VarDecl)target; break;
+			case NodeKind.IDENTIFIER_TYPE: ((IdentifierType)n).link = (ClassDecl)target; break;
+			case NodeKind.INST_VAR_ACCESS: ((InstVarAccess)n).varDec = (InstVarDecl)target; break;
+			case NodeKind.METHOD_DECL_VOID:
+			case NodeKind.METHOD_DECL_NON_VOID: ((MethodDecl)n).superMethod = (MethodDecl)target; break;
+		}
+	}
+
+	/**
+	 * builds a node, after building its children
+	 * @return the node, or null if i is -1
+	 */
+	private AstNode build(int i, AstNode[] nodes) {
+		if (i < 0) return null;
+		if (nodes[i] != null) return nodes[i];
+		int c = firstChild[i];
+		int pos = positions[i];
+		AstNode n;
+		switch (kinds[i]) {
+			case NodeKind.AND: n = new And(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.DIVIDE: n = new Divide(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.EQUALS: n = new Equals(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.GREATER_THAN: n = new GreaterThan(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.LESS_THAN: n = new LessThan(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.MINUS: n = new Minus(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.OR: n = new Or(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.PLUS: n = new Plus(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.REMAINDER: n = new Remainder(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.TIMES: n = new Times(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.ARRAY_LENGTH: n = new ArrayLength(pos, exp(c, nodes)); break;
+			case NodeKind.NOT: n = new Not(pos, exp(c, nodes)); break;
+			case NodeKind.ARRAY_LOOKUP:
+				n = new ArrayLookup(pos, exp(c, nodes), exp(c+1, nodes));
+				break;
+			case NodeKind.ARRAY_TYPE: n = new ArrayType(pos, (Type)child(c, nodes)); break;
+			case NodeKind.ASSIGN: n = new Assign(pos, exp(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.BLOCK:
+				n = new Block(pos, (StatementList)list(c, nodes));
+				break;
+			case NodeKind.BOOLEAN_TYPE: n = new BooleanType(pos); break;
+			case NodeKind.BREAK: n = new Break(pos); break;
+			case NodeKind.CALL:
+				n = new Call(pos, exp(c, nodes), string(i), (ExpList)list(c+1, nodes));
+				break;
+			case NodeKind.CALL_STATEMENT: n = new CallStatement(pos, (Call)child(c, nodes)); break;
+			case NodeKind.CASE: n = new Case(pos, exp(c, nodes)); break;
+			case NodeKind.CAST: n = new Cast(pos, (Type)child(c, nodes), exp(c+1, nodes)); break;
+			case NodeKind.CLASS_DECL:
+				n = new ClassDecl(pos, string(i), offsets[i] < 0 ? null : superName(i),
+						(DeclList)list(c, nodes));
+				break;
+			case NodeKind.DEFAULT: n = new Default(pos); break;
+			case NodeKind.FALSE: n = new False(pos); break;
+			case NodeKind.FORMAL_DECL:
+				n = new FormalDecl(pos, (Type)child(c, nodes), string(i));
+				((VarDecl)n).offset = offsets[i];
+				break;
+			case NodeKind.IDENTIFIER_EXP: n = new IdentifierExp(pos, string(i)); break;
+			case NodeKind.IDENTIFIER_TYPE: n = new IdentifierType(pos, string(i)); break;
+			case NodeKind.IF:
+				n = new If(pos, exp(c, nodes), (Statement)child(c+1, nodes),
+						(Statement)child(c+2, nodes));
+				break;
+			case NodeKind.INST_VAR_ACCESS: n = new InstVarAccess(pos, exp(c, nodes), string(i)); break;
+			case NodeKind.INST_VAR_DECL:
+				n = new InstVarDecl(pos, (Type)child(c, nodes), string(i));
+				((VarDecl)n).offset = offsets[i];
+				break;
+			case NodeKind.INSTANCE_OF:
+				n = new InstanceOf(pos, exp(c, nodes), (Type)child(c+1, nodes));
+				break;
+			case NodeKind.INTEGER_LITERAL: n = new IntegerLiteral(pos, values[i]); break;
+			case NodeKind.INTEGER_TYPE: n = new IntegerType(pos); break;
+			case NodeKind.LOCAL_DECL_STATEMENT:
+				n = new LocalDeclStatement(pos, (LocalVarDecl)child(c, nodes));
+				break;
+			case NodeKind.LOCAL_VAR_DECL:
+				n = new LocalVarDecl(pos, (Type)child(c, nodes), string(i), exp(c+1, nodes));
+				((VarDecl)n).offset = offsets[i];
+				break;
+			case NodeKind.METHOD_DECL_VOID:
+				n = new MethodDeclVoid(pos, string(i), (VarDeclList)list(c, nodes),
+						(StatementList)list(c+1, nodes));
+				((MethodDecl)n).vtableOffset = offsets[i];
+				break;
+			case NodeKind.METHOD_DECL_NON_VOID:
+				n = new MethodDeclNonVoid(pos, (Type)child(c, nodes), string(i),
+						(VarDeclList)list(c+1, nodes), (StatementList)list(c+2, nodes),
+						exp(c+3, nodes));
+				((MethodDecl)n).vtableOffset = offsets[i];
+				break;
+			case NodeKind.NEW_ARRAY:
+				n = new NewArray(pos, (Type)child(c, nodes), exp(c+1, nodes));
+				break;
+			case NodeKind.NEW_OBJECT: n = new NewObject(pos, (IdentifierType)child(c, nodes)); break;
+			case NodeKind.NULL: n = new Null(pos); break;
+			case NodeKind.NULL_TYPE: n = new NullType(pos); break;
+			case NodeKind.PROGRAM: {
+				Program p = new Program(pos, (ClassDeclList)list(c+1, nodes));
+				p.mainStatement = (Statement)child(c, nodes);
+				n = p;
+				break;
+			}
+			case NodeKind.STRING_LITERAL: n = new StringLiteral(pos, string(i)); break;
+			case NodeKind.SUPER: n = new Super(pos); break;
+			case NodeKind.SWITCH:
+				n = new Switch(pos, exp(c, nodes), (StatementList)list(c+1, nodes));
+				((Switch)n).stackHeight = offsets[i];
+				break;
+			case NodeKind.THIS: n = new This(pos); break;
+			case NodeKind.TRUE: n = new True(pos); break;
+			case NodeKind.VOID_TYPE: n = new VoidType(pos); break;
+			case NodeKind.WHILE:
+				n = new While(pos, exp(c, nodes), (Statement)child(c+1, nodes));
+				((While)n).stackHeight = offsets[i];
+				break;
+			default:
+				throw new IllegalStateException("Node "+i+" has no kind");
+		}
+		nodes[i] = n;
+		return n;
+	}
+
+	private AstNode child(int slot, AstNode[] nodes) {
+		return build(children[slot], nodes);
+	}
+
+	private Exp exp(int slot, AstNode[] nodes) {
+		return (Exp)child(slot, nodes);
+	}
+
+	/**
+	 * builds a list, after building its elements
+	 * @param slot the list's place among its parent's children
+	 * @return the list, or null if it is missing
+	 */
+	@SuppressWarnings("unchecked")
+	private AstList<?> list(int slot, AstNode[] nodes) {
+		int i = children[slot];
+		if (i < 0) return null;
+		AstList<AstNode> rtnVal;
+		switch (kinds[i]) {
+			case CLASS_DECL_LIST: rtnVal = (AstList)new ClassDeclList(); break;
+			case DECL_LIST: rtnVal = (AstList)new DeclList(); break;
+			case EXP_LIST: rtnVal = (AstList)new ExpList(); break;
+			case STATEMENT_LIST: rtnVal = (AstList)new StatementList(); break;
+			case VAR_DECL_LIST: rtnVal = (AstList)new VarDeclList(); break;
+			default: throw new IllegalStateException("Node "+i+" is not a list");
+		}
+		for (int k = 0; k < childCount[i]; k++) {
+			rtnVal.add(child(firstChild[i]+k, nodes));
+		}
+		return rtnVal;
+	}
+}
@@ -1,15 +1,33 @@
 package syntaxtree;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 import treedisplay.*;
 import visitor.Visitor;
 
 /**
  * a list of a given AST node type (abstract)
+ *
+ * The list was once a Vector; it keeps the Vector methods that the
+ * compiler's passes use (elementAt, addElement, insertElementAt,
+ * lastElement, ...), but none of its locking. The elements are kept in an
+ * array with free room at both ends, so that adding an element at the
+ * front, as the parser does when it builds a list from the right, takes
+ * constant time rather than moving all the elements.
  * @param <T> the base type of the list
  */
-public abstract class AstList<T> extends Vector<T> implements TreeDisplayable {
+public abstract class AstList<T> extends AbstractList<T>
+	implements RandomAccess, TreeDisplayable {
+
+	private static final Object[] NO_ELEMENTS = {};
+
+	// the elements are elements[first] through elements[first+count-1]
+	private Object[] elements = NO_ELEMENTS;
+	private int first;
+	private int count;
 
 	/**
 	 * constructor -- initializes to an empty list
@@ -33,7 +51,7 @@ public abstract class AstList<T> extends Vector<T> implements TreeDisplayable {
 	 * @param n the element to add
 	 */
 	public void addElement(T n) {
-		super.addElement(n);
+		add(n);
 	}
 
 	/**
@@ -41,9 +59,146 @@ public abstract class AstList<T> extends Vector<T> implements TreeDisplayable {
 	 * @param n the element to add
 	 */
 	public void addElementAtFront(T n) {
-		super.insertElementAt(n, 0);
+		add(0, n);
+	}
+
+	/**
+	 * inserts an element into the list
+	 * @param n the element to insert
+	 * @param index the position at which to insert it
+	 */
+	public void insertElementAt(T n, int index) {
+		add(index, n);
+	}
+
+	/**
+	 * @param index a position in the list
+	 * @return the element at that position
+	 */
+	public T elementAt(int index) {
+		return get(index);
+	}
+
+	/**
+	 * @return the first element of the list
+	 */
+	public T firstElement() {
+		if (count == 0) throw new NoSuchElementException();
+		return get(0);
+	}
+
+	/**
+	 * @return the last element of the list
+	 */
+	public T lastElement() {
+		if (count == 0) throw new NoSuchElementException();
+		return get(count-1);
+	}
+
+	/**
+	 * removes an element from the list
+	 * @param index the element's position
+	 */
+	public void removeElementAt(int index) {
+		remove(index);
+	}
+
+	/*************** java.util.List methods ****************/
+
+	@Override
+	public int size() {
+		return count;
 	}
-	
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		checkIndex(index, count);
+		return (T)elements[first+index];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T set(int index, T n) {
+		checkIndex(index, count);
+		T rtnVal = (T)elements[first+index];
+		elements[first+index] = n;
+		return rtnVal;
+	}
+
+	@Override
+	public boolean add(T n) {
+		if (first+count == elements.length) {
+			grow();
+		}
+		elements[first+count] = n;
+		count++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public void add(int index, T n) {
+		checkIndex(index, count+1);
+		if (index == count) {
+			add(n);
+			return;
+		}
+		if (index == 0) {
+			if (first == 0) {
+				grow();
+			}
+			elements[--first] = n;
+		}
+		else {
+			if (first+count == elements.length) {
+				grow();
+			}
+			System.arraycopy(elements, first+index, elements, first+index+1, count-index);
+			elements[first+index] = n;
+		}
+		count++;
+		modCount++;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T remove(int index) {
+		checkIndex(index, count);
+		T rtnVal = (T)elements[first+index];
+		System.arraycopy(elements, first+index+1, elements, first+index, count-index-1);
+		elements[first+count-1] = null;
+		count--;
+		modCount++;
+		return rtnVal;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(elements, first, first+count, null);
+		first = elements.length/2;
+		count = 0;
+		modCount++;
+	}
+
+	/**
+	 * doubles the room in the array, putting half of the new room in front
+	 * of the elements and half behind them
+	 */
+	private void grow() {
+		int room = Math.max(count, 4);
+		Object[] newElements = new Object[count+2*room];
+		System.arraycopy(elements, first, newElements, room, count);
+		elements = newElements;
+		first = room;
+	}
+
+	private static void checkIndex(int index, int limit) {
+		if (index < 0 || index >= limit) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+	}
+
 	/*************** remaining methods are visitor- and display-related ****************/
 
 	public abstract Object accept(Visitor v);
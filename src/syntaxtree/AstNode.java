@@ -11,9 +11,18 @@ public abstract class AstNode implements TreeDisplayable {
 	// instance variables filled in by constructor
 	public int pos; // the character-position of this construct in the source file
 	public int uniqueId; // the object's unique ID
+	public int kind; // the node's class, as a NodeKind (set by that class)
 
-	// static variable used to generate unique IDs
-	private static int uniqueIdCounter = 0;
+	// counter used to generate unique IDs; each compilation has its own
+	// (see resetUniqueIdCounter), bound to whichever thread is currently
+	// working on that compilation, so that each compilation numbers its nodes
+	// from zero regardless of what other compilations are running concurrently
+	private static final ThreadLocal<int[]> uniqueIdCounter =
+		new ThreadLocal<int[]>() {
+			protected int[] initialValue() {
+				return new int[1];
+			}
+		};
 
 	/**
 	 * constructor
@@ -21,7 +30,53 @@ public abstract class AstNode implements TreeDisplayable {
 	 */
 	public AstNode(int poss) {
 		pos = poss;
-		uniqueId = uniqueIdCounter++;
+		uniqueId = uniqueIdCounter.get()[0]++;
+	}
+
+	/**
+	 * takes back the unique ID that a node has just been given, for a node
+	 * that is not part of any one compilation's numbering (see Types)
+	 * @param n the node, which must be the last one created by the current
+	 * thread
+	 * @return the node
+	 */
+	static <T extends AstNode> T unnumbered(T n) {
+		uniqueIdCounter.get()[0]--;
+		n.uniqueId = -1;
+		return n;
+	}
+
+	/**
+	 * starts a new unique-ID counter, from zero, for the current thread;
+	 * called at the beginning of each compilation
+	 */
+	public static void resetUniqueIdCounter() {
+		uniqueIdCounter.set(new int[1]);
+	}
+
+	/**
+	 * @return the unique-ID counter of the current thread, so that a
+	 * compilation that moves to another thread can take it along (see
+	 * setUniqueIdCounter)
+	 */
+	public static int[] getUniqueIdCounter() {
+		return uniqueIdCounter.get();
+	}
+
+	/**
+	 * makes the current thread continue a compilation's numbering
+	 * @param counter the counter, as returned by getUniqueIdCounter
+	 */
+	public static void setUniqueIdCounter(int[] counter) {
+		uniqueIdCounter.set(counter);
+	}
+
+	/**
+	 * @return the number of nodes created with the current thread's counter
+	 * since the last call to resetUniqueIdCounter
+	 */
+	public static int uniqueIdCount() {
+		return uniqueIdCounter.get()[0];
 	}
 	
 	/*************** remaining methods are visitor- and display-related ****************/
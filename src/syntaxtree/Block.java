@@ -18,6 +18,7 @@ public class Block extends Statement {
 	 */
 	public Block(int pos, StatementList astmts) {
 		super(pos);
+		kind = NodeKind.BLOCK;
 		stmts = astmts;
 	}
 
@@ -12,6 +12,7 @@ public class BooleanType extends Type {
 	 */
 	public BooleanType(int pos) {
 		super(pos);
+		kind = NodeKind.BOOLEAN_TYPE;
 	}
 	
 	/**
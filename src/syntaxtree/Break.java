@@ -16,6 +16,7 @@ public class Break extends Statement {
 	 */
 	public Break(int pos) {
 		super(pos);
+		kind = NodeKind.BREAK;
 		breakLink = null;
 	}
 
@@ -11,6 +11,7 @@ public class Call extends Exp {
 	// instance variables filled in by constructor
 	public Exp obj; // the object on which the method is being called
 	public String methName; // the name of the method being called
+	private Symbol methSym; // its symbol (see methSymbol())
 	public ExpList parms; // the list of actual parameters in the call
 
 	// instance variables filled in during later phases
@@ -25,10 +26,20 @@ public class Call extends Exp {
 	 */
 	public Call(int pos, Exp aobj, String amethName, ExpList aparms) {
 		super(pos);
+		kind = NodeKind.CALL;
 		obj=aobj; methName=amethName; parms=aparms;
+		methSym = Symbol.forName(null, methName);
+		if (methSym != null) methName = methSym.name;
 		methodLink = null;
 	}
 
+	/**
+	 * @return the symbol of the name of the method, or null if there is none
+	 */
+	public Symbol methSymbol() {
+		return methSym = Symbol.forName(methSym, methName);
+	}
+
 	/*************** remaining methods are visitor- and display-related ****************/
 
 	public Object accept(Visitor v) {
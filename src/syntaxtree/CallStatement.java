@@ -18,6 +18,7 @@ public class CallStatement extends Statement {
 	 */
 	public CallStatement(int pos, Call aexp) {
 		super(pos);
+		kind = NodeKind.CALL_STATEMENT;
 		callExp = aexp;
 	}
 
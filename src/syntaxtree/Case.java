@@ -18,6 +18,7 @@ public class Case extends Label {
 	 */
 	public Case(int pos, Exp aexp) {
 		super(pos);
+		kind = NodeKind.CASE;
 		exp=aexp;
 	}
 
@@ -20,6 +20,7 @@ public class Cast extends Exp {
 	 */
 	public Cast(int pos, Type atype, Exp aexp) {
 		super(pos);
+		kind = NodeKind.CAST;
 		castType=atype;
 		exp=aexp;
 	}
@@ -19,6 +19,10 @@ public class ClassDecl extends Decl {
 	public Hashtable<String,MethodDecl> methodTable; // symbol table for methods
 	public int numDataInstVars; // number of non-object instance variables
 	public int numObjInstVars; // number of object instance variables
+	public VTable vtable; // the layout of the class's v-table
+	IdentifierType classType; // the class's canonical type (see Types)
+	public int preOrder = -1; // the class's number in a pre-order walk of the class hierarchy
+	public int postOrder = -1; // the class's number in a post-order walk of the class hierarchy
 
 	/**
 	 * constructor
@@ -30,11 +34,65 @@ public class ClassDecl extends Decl {
 	public ClassDecl(int pos, String aname, String asuperName, 
 			DeclList aDeclList) {
 		super(pos, aname);
+		kind = NodeKind.CLASS_DECL;
 		superName=asuperName; decls = aDeclList;
 		superLink = null;
 		subclasses = new ClassDeclList();
-		instVarTable = new Hashtable<String,InstVarDecl>();
-		methodTable = new Hashtable<String,MethodDecl>();
+		instVarTable = new SymbolTable<InstVarDecl>();
+		methodTable = new SymbolTable<MethodDecl>();
+	}
+
+	/**
+	 * numbers the classes in pre-order and in post-order, walking the class
+	 * hierarchy down from each root (a class with no superclass) through the
+	 * subclass lists; a class is then a subclass of another exactly when its
+	 * pre-order number is no lower and its post-order number no higher --
+	 * the same nesting as that of the CLASS_ and CLASS_END_ labels in the
+	 * generated code
+	 * @param classes the classes of a program, including the predefined ones
+	 */
+	public static void numberHierarchy(Collection<ClassDecl> classes) {
+		int pre = 0;
+		int post = 0;
+		Stack<ClassDecl> path = new Stack<ClassDecl>();
+		Stack<Integer> next = new Stack<Integer>(); // the next subclass to visit
+		for (ClassDecl root : classes) {
+			if (root.superLink != null) continue;
+			root.preOrder = pre++;
+			path.push(root);
+			next.push(0);
+			while (!path.isEmpty()) {
+				ClassDecl cd = path.peek();
+				int k = next.pop();
+				if (k < cd.subclasses.size()) {
+					next.push(k+1);
+					ClassDecl sub = cd.subclasses.elementAt(k);
+					sub.preOrder = pre++;
+					path.push(sub);
+					next.push(0);
+				}
+				else {
+					cd.postOrder = post++;
+					path.pop();
+				}
+			}
+		}
+	}
+
+	/**
+	 * tests whether this class is the given class or one of its subclasses;
+	 * constant-time once the hierarchy is numbered (see numberHierarchy)
+	 * @param cd the class
+	 * @return whether this class is cd or a subclass of it
+	 */
+	public boolean isSubclassOf(ClassDecl cd) {
+		if (preOrder >= 0 && postOrder >= 0 && cd.preOrder >= 0 && cd.postOrder >= 0) {
+			return cd.preOrder <= preOrder && postOrder <= cd.postOrder;
+		}
+		for (ClassDecl c = this; c != null; c = c.superLink) {
+			if (c == cd) return true;
+		}
+		return false;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -8,6 +8,7 @@ public abstract class Decl extends AstNode {
 	
 	// instance variables filled in by constructor
 	public String name; // the name being declared
+	private Symbol sym; // its symbol (see symbol())
 
 	/**
 	 * constructor
@@ -17,6 +18,15 @@ public abstract class Decl extends AstNode {
 	public Decl(int pos, String aname) {
 		super(pos);
 		name=aname;
+		sym = Symbol.forName(null, name);
+		if (sym != null) name = sym.name;
+	}
+
+	/**
+	 * @return the symbol of the name being declared, or null if there is none
+	 */
+	public Symbol symbol() {
+		return sym = Symbol.forName(sym, name);
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -12,6 +12,7 @@ public class Default extends Label {
 	 */
 	public Default(int pos) {
 		super(pos);
+		kind = NodeKind.DEFAULT;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
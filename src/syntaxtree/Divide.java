@@ -14,6 +14,7 @@ public class Divide extends BinExp {
 	 */
 	public Divide(int pos, Exp ae1, Exp ae2) { 
 		super(pos, ae1, ae2);
+		kind = NodeKind.DIVIDE;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -14,6 +14,7 @@ public class Equals extends BinExp {
 	 */
 	public Equals(int pos, Exp ae1, Exp ae2) { 
 		super(pos, ae1, ae2);
+		kind = NodeKind.EQUALS;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
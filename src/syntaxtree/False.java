@@ -12,6 +12,7 @@ public class False extends Exp {
 	 */
 	public False(int pos) {
 		super(pos);
+		kind = NodeKind.FALSE;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -16,6 +16,7 @@ public class FormalDecl extends VarDecl {
 	 */
 	public FormalDecl(int pos, Type atype, String aname) {
 		super(pos, atype, aname);
+		kind = NodeKind.FORMAL_DECL;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
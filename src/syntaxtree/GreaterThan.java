@@ -21,6 +21,7 @@ public class GreaterThan extends BinExp {
 	 */
 	public GreaterThan(int pos, Exp ae1, Exp ae2) { 
 		super(pos, ae1, ae2);
+		kind = NodeKind.GREATER_THAN;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
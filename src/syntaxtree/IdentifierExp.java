@@ -8,6 +8,7 @@ public class IdentifierExp extends Exp {
 	
 	// instance variables filled in by constructor
 	public String name; // the name of the variable
+	private Symbol sym; // its symbol (see symbol())
 	
 	// instance variables filled in during later phases
 	public VarDecl link; // the declaration of the variable
@@ -19,10 +20,20 @@ public class IdentifierExp extends Exp {
 	 */
 	public IdentifierExp(int pos, String aname) {
 		super(pos);
+		kind = NodeKind.IDENTIFIER_EXP;
 		name=aname;
+		sym = Symbol.forName(null, name);
+		if (sym != null) name = sym.name;
 		link=null;
 	}
 
+	/**
+	 * @return the symbol of the name of the variable, or null if there is none
+	 */
+	public Symbol symbol() {
+		return sym = Symbol.forName(sym, name);
+	}
+
 	/*************** remaining methods are visitor- and display-related ****************/
 
 	public Object accept(Visitor v) {
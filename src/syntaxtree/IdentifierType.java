@@ -8,6 +8,7 @@ public class IdentifierType extends Type {
 	
 	// instance variables filled in by constructor
 	public String name; // the name of the type
+	private Symbol sym; // its symbol (see symbol())
 
 	// instance variables filled in during later phases
 	public ClassDecl link; // the type declaration
@@ -19,7 +20,10 @@ public class IdentifierType extends Type {
 	 */
 	public IdentifierType(int pos, String aname) {
 		super(pos);
+		kind = NodeKind.IDENTIFIER_TYPE;
 		name=aname;
+		sym = Symbol.forName(null, name);
+		if (sym != null) name = sym.name;
 		link = null;
 	}
 	
@@ -46,6 +50,13 @@ public class IdentifierType extends Type {
 		else return 826427*name.hashCode()+83473;
 	}
 
+	/**
+	 * @return the symbol of the name of the type, or null if there is none
+	 */
+	public Symbol symbol() {
+		return sym = Symbol.forName(sym, name);
+	}
+
 	/*************** remaining methods are visitor- and display-related ****************/
 
 	public Object accept(Visitor v) {
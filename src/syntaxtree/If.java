@@ -22,6 +22,7 @@ public class If extends Statement {
 	 */
 	public If(int pos, Exp aexp, Statement atrueStmt, Statement afalseStmt) {
 		super(pos);
+		kind = NodeKind.IF;
 		exp=aexp; trueStmt=atrueStmt; falseStmt=afalseStmt;
 	}
 
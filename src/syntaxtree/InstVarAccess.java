@@ -11,6 +11,7 @@ public class InstVarAccess extends Exp {
 	// instance variables filled in by constructor
 	public Exp exp; // the expression denoting the object to access
 	public String varName; // the name of the instance variable in the object
+	private Symbol varSym; // its symbol (see varSymbol())
 
 	// instance variables filled in during later phases
 	public InstVarDecl varDec; // declaration of the instance variable being accessed
@@ -23,7 +24,17 @@ public class InstVarAccess extends Exp {
 	 */
 	public InstVarAccess(int pos, Exp aexp, String avarName) {
 		super(pos);
+		kind = NodeKind.INST_VAR_ACCESS;
 		exp=aexp; varName=avarName;
+		varSym = Symbol.forName(null, varName);
+		if (varSym != null) varName = varSym.name;
+	}
+
+	/**
+	 * @return the symbol of the name of the instance variable, or null if there is none
+	 */
+	public Symbol varSymbol() {
+		return varSym = Symbol.forName(varSym, varName);
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -14,6 +14,7 @@ public class InstVarDecl extends VarDecl {
 	 */
 	public InstVarDecl(int pos, Type atype, String aname) {
 		super(pos, atype, aname);
+		kind = NodeKind.INST_VAR_DECL;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -20,6 +20,7 @@ public class InstanceOf extends Exp {
 	 */
 	public InstanceOf(int pos, Exp aexp, Type atype) {
 		super(pos);
+		kind = NodeKind.INSTANCE_OF;
 		exp=aexp;
 		checkType=atype;
 	}
@@ -16,6 +16,7 @@ public class IntegerLiteral extends Exp {
 	 */
 	public IntegerLiteral(int pos, int aval) {
 		super(pos);
+		kind = NodeKind.INTEGER_LITERAL;
 		val=aval;
 	}
 
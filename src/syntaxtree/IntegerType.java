@@ -12,6 +12,7 @@ public class IntegerType extends Type {
 	 */
 	public IntegerType(int pos) {
 		super(pos);
+		kind = NodeKind.INTEGER_TYPE;
 	}
 	
 	/**
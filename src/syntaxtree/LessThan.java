@@ -14,6 +14,7 @@ public class LessThan extends BinExp {
 	 */
 	public LessThan(int pos, Exp ae1, Exp ae2) {
 		super(pos, ae1, ae2);
+		kind = NodeKind.LESS_THAN;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -18,6 +18,7 @@ public class LocalDeclStatement extends Statement {
 	 */	
 	public LocalDeclStatement(int pos, LocalVarDecl decl) {
 		super(pos);
+		kind = NodeKind.LOCAL_DECL_STATEMENT;
 		localVarDecl = decl;
 	}
 
@@ -20,6 +20,7 @@ public class LocalVarDecl extends VarDecl {
 	 */
 	public LocalVarDecl(int pos, Type at, String as, Exp initX) {
 		super(pos, at, as);
+		kind = NodeKind.LOCAL_VAR_DECL;
 		initExp = initX;
 	}
 
@@ -32,6 +32,19 @@ public abstract class MethodDecl extends Decl {
 		vtableOffset = Integer.MIN_VALUE;
 	}
 
+	/**
+	 * @return the label of the method's code: a predefined method's is its
+	 * name and its class's name, a user-defined one's its name and unique ID
+	 */
+	public String label() {
+		if (pos < 0) {
+			return name + "_" + classDecl.name;
+		}
+		else {
+			return "fcn_" + uniqueId + "_" + name;
+		}
+	}
+
 	/*************** remaining methods are visitor- and display-related ****************/
 
 	public Object accept(Visitor v) {
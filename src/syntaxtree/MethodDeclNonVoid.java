@@ -25,6 +25,7 @@ public class MethodDeclNonVoid extends MethodDecl {
 	public MethodDeclNonVoid(int pos, Type at, String as, VarDeclList afl,
 			StatementList asl, Exp ae) {
 		super(pos, as, afl, asl);
+		kind = NodeKind.METHOD_DECL_NON_VOID;
 		rtnType=at; rtnExp=ae;
 	}
 
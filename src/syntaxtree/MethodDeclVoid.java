@@ -16,6 +16,7 @@ public class MethodDeclVoid extends MethodDecl {
 	public MethodDeclVoid(int pos, String as, VarDeclList afl,
 			StatementList asl) {
 		super(pos, as, afl, asl);
+		kind = NodeKind.METHOD_DECL_VOID;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -14,6 +14,7 @@ public class Minus extends BinExp {
 	 */
 	public Minus(int pos, Exp ae1, Exp ae2) {
 		super(pos, ae1, ae2);
+		kind = NodeKind.MINUS;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -20,6 +20,7 @@ public class NewArray extends Exp {
 	 */
 	public NewArray(int pos, Type atype, Exp asizeExp) {
 		super(pos);
+		kind = NodeKind.NEW_ARRAY;
 		objType=atype;
 		sizeExp=asizeExp; 
 	}
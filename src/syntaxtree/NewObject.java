@@ -18,6 +18,7 @@ public class NewObject extends Exp {
 	 */
 	public NewObject(int pos, IdentifierType atype) {
 		super(pos);
+		kind = NodeKind.NEW_OBJECT;
 		objType=atype;
 	}
 
@@ -0,0 +1,70 @@
+package syntaxtree;
+
+/**
+ * the kinds of AST node: one for each class of node that is not abstract
+ *
+ * Each node's kind is in its kind field, so that a visitor can choose the
+ * method for a node with a switch on the kind (see visitor.DispatchVisitor),
+ * rather than by way of the node's accept method. A node of a class that
+ * has no kind here has kind NONE.
+ */
+public final class NodeKind {
+
+	public static final int NONE = 0;
+	public static final int AND = 1;
+	public static final int ARRAY_LENGTH = 2;
+	public static final int ARRAY_LOOKUP = 3;
+	public static final int ARRAY_TYPE = 4;
+	public static final int ASSIGN = 5;
+	public static final int BLOCK = 6;
+	public static final int BOOLEAN_TYPE = 7;
+	public static final int BREAK = 8;
+	public static final int CALL = 9;
+	public static final int CALL_STATEMENT = 10;
+	public static final int CASE = 11;
+	public static final int CAST = 12;
+	public static final int CLASS_DECL = 13;
+	public static final int DEFAULT = 14;
+	public static final int DIVIDE = 15;
+	public static final int EQUALS = 16;
+	public static final int FALSE = 17;
+	public static final int FORMAL_DECL = 18;
+	public static final int GREATER_THAN = 19;
+	public static final int IDENTIFIER_EXP = 20;
+	public static final int IDENTIFIER_TYPE = 21;
+	public static final int IF = 22;
+	public static final int INST_VAR_ACCESS = 23;
+	public static final int INST_VAR_DECL = 24;
+	public static final int INSTANCE_OF = 25;
+	public static final int INTEGER_LITERAL = 26;
+	public static final int INTEGER_TYPE = 27;
+	public static final int LESS_THAN = 28;
+	public static final int LOCAL_DECL_STATEMENT = 29;
+	public static final int LOCAL_VAR_DECL = 30;
+	public static final int METHOD_DECL_NON_VOID = 31;
+	public static final int METHOD_DECL_VOID = 32;
+	public static final int MINUS = 33;
+	public static final int NEW_ARRAY = 34;
+	public static final int NEW_OBJECT = 35;
+	public static final int NOT = 36;
+	public static final int NULL = 37;
+	public static final int NULL_TYPE = 38;
+	public static final int OR = 39;
+	public static final int PLUS = 40;
+	public static final int PROGRAM = 41;
+	public static final int REMAINDER = 42;
+	public static final int STRING_LITERAL = 43;
+	public static final int SUPER = 44;
+	public static final int SWITCH = 45;
+	public static final int THIS = 46;
+	public static final int TIMES = 47;
+	public static final int TRUE = 48;
+	public static final int VOID_TYPE = 49;
+	public static final int WHILE = 50;
+
+	// one more than the largest kind
+	public static final int COUNT = 51;
+
+	private NodeKind() {
+	}
+}
@@ -13,6 +13,7 @@ public class Not extends UnExp {
 	 */
 	public Not(int pos, Exp ae) {
 		super(pos, ae); 
+		kind = NodeKind.NOT;
 	}
 	
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -12,6 +12,7 @@ public class Null extends Exp {
 	 */
 	public Null(int pos) {
 		super(pos);
+		kind = NodeKind.NULL;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -12,6 +12,7 @@ public class NullType extends Type {
 	 */
 	public NullType(int pos) {
 		super(pos);
+		kind = NodeKind.NULL_TYPE;
 	}
 
 	/**
@@ -14,6 +14,7 @@ public class Or extends BinExp {
 	 */
 	public Or(int pos, Exp ae1, Exp ae2) { 
 		super(pos, ae1, ae2);
+		kind = NodeKind.OR;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -14,6 +14,7 @@ public class Plus extends BinExp {
 	 */
 	public Plus(int pos, Exp ae1, Exp ae2) { 
 		super(pos, ae1, ae2);
+		kind = NodeKind.PLUS;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
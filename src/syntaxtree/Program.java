@@ -18,6 +18,7 @@ public class Program extends AstNode {
 	 */
 	public Program(int pos, ClassDeclList acl) {
 		super(pos);
+		kind = NodeKind.PROGRAM;
 		IdentifierType mainType = new IdentifierType(-1, "Main"); 
 		Exp newExp = new NewObject(-1, mainType);
 		Call callExp = new Call(-1, newExp, "main", new ExpList());
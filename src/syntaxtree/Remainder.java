@@ -14,6 +14,7 @@ public class Remainder extends BinExp {
 	 */
 	public Remainder(int pos, Exp ae1, Exp ae2) { 
 		super(pos, ae1, ae2);
+		kind = NodeKind.REMAINDER;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -19,6 +19,7 @@ public class StringLiteral extends Exp {
 	 */
 	public StringLiteral(int pos, String astr) {
 		super(pos);
+		kind = NodeKind.STRING_LITERAL;
 		str = astr;
 		uniqueCgRep = null;
 	}
@@ -12,6 +12,7 @@ public class Super extends Exp {
 	 */
 	public Super(int pos) {
 		super(pos);
+		kind = NodeKind.SUPER;
 	}
 	
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -20,6 +20,7 @@ public class Switch extends BreakTarget {
 	 */
 	public Switch(int pos, Exp aexp, StatementList astmts) {
 		super(pos);
+		kind = NodeKind.SWITCH;
 		exp=aexp; stmts = astmts;
 	}
 
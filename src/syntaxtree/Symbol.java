@@ -0,0 +1,101 @@
+package syntaxtree;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * an interned identifier
+ *
+ * There is one Symbol for each distinct identifier in use, shared by all
+ * compilations in the process; each has a small integer ID, by which
+ * SymbolTable finds it without hashing or comparing its characters. The
+ * AST nodes that carry names intern them when they are created, so that
+ * each name is looked up in the (lock-free) intern table once. The table
+ * holds its symbols weakly: once no AST or symbol table refers to a symbol
+ * any more, it is dropped, so that a long-running compile server does not
+ * accumulate the identifiers of every program it has compiled.
+ */
+public final class Symbol {
+
+	private static final ConcurrentMap<String,SymbolRef> symbols =
+		new ConcurrentHashMap<String,SymbolRef>();
+	private static final ReferenceQueue<Symbol> dropped = new ReferenceQueue<Symbol>();
+	private static final AtomicInteger nextId = new AtomicInteger();
+
+	public final String name; // the identifier, canonical among equal strings
+	public final int id; // the symbol's unique ID, counting from zero
+
+	private Symbol(String name, int id) {
+		this.name = name;
+		this.id = id;
+	}
+
+	/**
+	 * @param name an identifier
+	 * @return the identifier's symbol, created if it does not exist yet
+	 */
+	public static Symbol intern(String name) {
+		expunge();
+		for (;;) {
+			SymbolRef ref = symbols.get(name);
+			Symbol rtnVal = ref == null ? null : ref.get();
+			if (rtnVal != null) return rtnVal;
+			// the name is new, or its symbol has been dropped
+			Symbol sym = new Symbol(name, nextId.getAndIncrement());
+			SymbolRef newRef = new SymbolRef(sym);
+			if (ref == null ? symbols.putIfAbsent(name, newRef) == null :
+					symbols.replace(name, ref, newRef)) {
+				return sym;
+			}
+		}
+	}
+
+	/**
+	 * @param name an identifier
+	 * @return the identifier's symbol, or null if it is not interned
+	 */
+	public static Symbol lookup(String name) {
+		SymbolRef ref = symbols.get(name);
+		return ref == null ? null : ref.get();
+	}
+
+	// removes the entries of the symbols that have been dropped
+	private static void expunge() {
+		for (SymbolRef ref; (ref = (SymbolRef)dropped.poll()) != null;) {
+			symbols.remove(ref.name, ref);
+		}
+	}
+
+	/**
+	 * @param sym a symbol, or null
+	 * @param name an identifier, or null
+	 * @return sym if it is name's symbol, or else name's symbol (or null if
+	 * name is null)
+	 */
+	static Symbol forName(Symbol sym, String name) {
+		if (name == null) return null;
+		if (sym != null && sym.name == name) return sym;
+		return intern(name);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * the intern table's reference to a symbol
+	 */
+	private static final class SymbolRef extends WeakReference<Symbol> {
+
+		final String name; // the symbol's identifier, its key in the table
+
+		SymbolRef(Symbol sym) {
+			super(sym, dropped);
+			name = sym.name;
+		}
+	}
+}
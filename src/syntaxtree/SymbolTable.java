@@ -0,0 +1,271 @@
+package syntaxtree;
+
+import java.util.*;
+
+/**
+ * a symbol table: a map from identifiers to declarations, in an
+ * open-addressing hash table keyed by symbol ID, with no locking
+ *
+ * The class is a Hashtable, so that it can stand in for the
+ * Hashtable&lt;String,...&gt; tables that the semantic passes were written
+ * against: get, containsKey, put and remove go to the symbol-keyed table.
+ * The same entries are also kept in the Hashtable itself, which backs its
+ * (read-only) keySet, values, entrySet, keys and elements views, in the
+ * order in which the Hashtable has always listed them; but puts and
+ * removes are only logged, and replayed into the Hashtable when one of the
+ * views is asked for, so that neither lookups nor updates lock, or hash
+ * the identifier's characters, if the caller passes symbols.
+ * @param <V> the type of the declarations
+ */
+public class SymbolTable<V> extends Hashtable<String,V> {
+
+	private static final long serialVersionUID = 1L;
+
+	// the table: a symbol and its declaration at the same index; its length
+	// is a power of two, at least twice the number of entries
+	private Symbol[] keys = new Symbol[8];
+	private Object[] values = new Object[8];
+	private int count;
+
+	// the puts and removes not yet replayed into the Hashtable: a symbol,
+	// and its new declaration, or null if it was removed
+	private ArrayList<Object> pending = new ArrayList<Object>();
+
+	/**
+	 * constructor -- initializes to an empty table
+	 */
+	public SymbolTable() {
+		super();
+	}
+
+	/**
+	 * @param tab a table
+	 * @return a symbol table with the same entries, or tab itself if it is
+	 * already a symbol table
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> SymbolTable<V> of(Hashtable<String,V> tab) {
+		if (tab == null || tab instanceof SymbolTable) {
+			return (SymbolTable<V>)tab;
+		}
+		SymbolTable<V> rtnVal = new SymbolTable<V>();
+		rtnVal.putAll(tab);
+		return rtnVal;
+	}
+
+	/**
+	 * @param sym a symbol
+	 * @return its declaration, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Symbol sym) {
+		for (int i = slot(sym.id);; i = (i+1) & (keys.length-1)) {
+			Symbol k = keys[i];
+			if (k == sym) return (V)values[i];
+			if (k == null) return null;
+		}
+	}
+
+	/**
+	 * enters a declaration into the table
+	 * @param sym its symbol
+	 * @param value the declaration
+	 * @return the symbol's previous declaration, or null if there was none
+	 */
+	public V put(Symbol sym, V value) {
+		if (value == null) throw new NullPointerException();
+		V rtnVal = putEntry(sym, value);
+		pending.add(sym);
+		pending.add(value);
+		return rtnVal;
+	}
+
+	/**
+	 * removes a declaration from the table
+	 * @param sym its symbol
+	 * @return the symbol's declaration, or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(Symbol sym) {
+		int i = slot(sym.id);
+		while (keys[i] != sym) {
+			if (keys[i] == null) return null;
+			i = (i+1) & (keys.length-1);
+		}
+		V rtnVal = (V)values[i];
+		// close the gap, moving up any later entry of the run that would
+		// otherwise no longer be found
+		int gap = i;
+		for (i = (i+1) & (keys.length-1); keys[i] != null; i = (i+1) & (keys.length-1)) {
+			int home = slot(keys[i].id);
+			if (((i-home) & (keys.length-1)) >= ((i-gap) & (keys.length-1))) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		keys[gap] = null;
+		values[gap] = null;
+		count--;
+		pending.add(sym);
+		pending.add(null);
+		return rtnVal;
+	}
+
+	@Override
+	public V get(Object key) {
+		Symbol sym = key instanceof String ? Symbol.lookup((String)key) : null;
+		return sym == null ? null : get(sym);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public V put(String key, V value) {
+		return put(Symbol.intern(key), value);
+	}
+
+	@Override
+	public V remove(Object key) {
+		Symbol sym = key instanceof String ? Symbol.lookup((String)key) : null;
+		return sym == null ? null : remove(sym);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		count = 0;
+		pending.clear();
+		super.clear();
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	@Override
+	public Set<String> keySet() {
+		replay();
+		return Collections.unmodifiableSet(super.keySet());
+	}
+
+	@Override
+	public Collection<V> values() {
+		replay();
+		return Collections.unmodifiableCollection(super.values());
+	}
+
+	@Override
+	public Set<Map.Entry<String,V>> entrySet() {
+		replay();
+		return Collections.unmodifiableSet(super.entrySet());
+	}
+
+	@Override
+	public Enumeration<String> keys() {
+		replay();
+		return super.keys();
+	}
+
+	@Override
+	public Enumeration<V> elements() {
+		replay();
+		return super.elements();
+	}
+
+	@Override
+	public boolean contains(Object value) {
+		replay();
+		return super.contains(value);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		replay();
+		return super.containsValue(value);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		replay();
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		replay();
+		return super.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		replay();
+		return super.toString();
+	}
+
+	// brings the Hashtable up to date with the symbol-keyed table, in the
+	// order in which the entries were put and removed
+	@SuppressWarnings("unchecked")
+	private synchronized void replay() {
+		for (int i = 0; i < pending.size(); i += 2) {
+			String key = ((Symbol)pending.get(i)).name;
+			V value = (V)pending.get(i+1);
+			if (value == null) {
+				super.remove(key);
+			}
+			else {
+				super.put(key, value);
+			}
+		}
+		pending.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private V putEntry(Symbol sym, V value) {
+		if (2*(count+1) > keys.length) {
+			grow();
+		}
+		int i = slot(sym.id);
+		for (; keys[i] != null; i = (i+1) & (keys.length-1)) {
+			if (keys[i] == sym) {
+				V rtnVal = (V)values[i];
+				values[i] = value;
+				return rtnVal;
+			}
+		}
+		keys[i] = sym;
+		values[i] = value;
+		count++;
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void grow() {
+		Symbol[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new Symbol[2*oldKeys.length];
+		values = new Object[2*oldKeys.length];
+		count = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				putEntry(oldKeys[i], (V)oldValues[i]);
+			}
+		}
+	}
+
+	// the index at which a symbol's search starts
+	private int slot(int id) {
+		int h = id*0x9e3779b9;
+		return (h ^ (h >>> 16)) & (keys.length-1);
+	}
+}
@@ -12,6 +12,7 @@ public class This extends Exp {
 	 */
 	public This(int pos) {
 		super(pos);
+		kind = NodeKind.THIS;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
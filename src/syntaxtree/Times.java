@@ -14,6 +14,7 @@ public class Times extends BinExp {
 	 */
   public Times(int pos, Exp ae1, Exp ae2) {
     super(pos, ae1, ae2);
+		kind = NodeKind.TIMES;
   }
 
 	/*************** remaining methods are visitor- and display-related ****************/
@@ -12,6 +12,7 @@ public class True extends Exp {
 	 */
 	public True(int pos) {
 		super(pos);
+		kind = NodeKind.TRUE;
 	}
 
 	/*************** remaining methods are visitor- and display-related ****************/
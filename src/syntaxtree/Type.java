@@ -6,6 +6,8 @@ import visitor.Visitor;
  */
 public abstract class Type extends AstNode {
 
+	ArrayType arrayType; // if canonical, the canonical array type of which it is the base (see Types)
+
 	/**
 	 * constructor
 	 * @param pos file position
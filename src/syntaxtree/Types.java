@@ -0,0 +1,88 @@
+package syntaxtree;
+
+/**
+ * the canonical types: one type object for each primitive type, one for
+ * each declared class, and one for each array type built from those
+ *
+ * The parser and the semantic passes create a new type node for each
+ * mention of a type; once the types have been checked, canonicalize
+ * replaces each of them with its canonical object (see
+ * visitor.TypeCanonicalizer), so that types can be compared by identity.
+ * The canonical objects take no unique IDs, so creating them does not
+ * disturb the numbering (and so the labels) of a compilation's nodes.
+ */
+public class Types {
+
+	public static final IntegerType INT = AstNode.unnumbered(new IntegerType(-1));
+	public static final BooleanType BOOLEAN = AstNode.unnumbered(new BooleanType(-1));
+	public static final VoidType VOID = AstNode.unnumbered(new VoidType(-1));
+	public static final NullType NULL = AstNode.unnumbered(new NullType(-1));
+
+	private Types() {
+	}
+
+	/**
+	 * @param t a type, or null
+	 * @return t's canonical type, or t itself if it has none (a class type
+	 * whose class has not been resolved)
+	 */
+	public static Type canonical(Type t) {
+		if (t instanceof IntegerType) {
+			return INT;
+		}
+		else if (t instanceof BooleanType) {
+			return BOOLEAN;
+		}
+		else if (t instanceof IdentifierType) {
+			ClassDecl cd = ((IdentifierType)t).link;
+			return cd == null ? t : classType(cd);
+		}
+		else if (t instanceof ArrayType) {
+			Type base = canonical(((ArrayType)t).baseType);
+			return isCanonical(base) ? arrayOf(base) : t;
+		}
+		else if (t instanceof VoidType) {
+			return VOID;
+		}
+		else if (t instanceof NullType) {
+			return NULL;
+		}
+		return t;
+	}
+
+	/**
+	 * @param t a type, or null
+	 * @return whether t is a canonical type (which, alone among type nodes,
+	 * has no unique ID)
+	 */
+	public static boolean isCanonical(Type t) {
+		return t != null && t.uniqueId == -1;
+	}
+
+	/**
+	 * @param cd a class declaration
+	 * @return the class's canonical type
+	 */
+	public static IdentifierType classType(ClassDecl cd) {
+		if (cd.classType == null) {
+			IdentifierType t = AstNode.unnumbered(new IdentifierType(-1, cd.name));
+			t.link = cd;
+			cd.classType = t;
+		}
+		return cd.classType;
+	}
+
+	/**
+	 * @param base a canonical type
+	 * @return the canonical type of arrays of base
+	 */
+	public static ArrayType arrayOf(Type base) {
+		// INT and BOOLEAN are shared by concurrent compilations
+		synchronized (base) {
+			if (base.arrayType == null) {
+				base.arrayType = AstNode.unnumbered(new ArrayType(-1, base));
+			}
+			return base.arrayType;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package syntaxtree;
+
+import java.util.*;
+
+/**
+ * the method layout of a class: for each of its methods, declared or
+ * inherited, the method's slot in the class's v-table and the declaration
+ * that implements it there
+ *
+ * A class's v-table starts out as a copy of its superclass's; each method
+ * the class declares then either takes over the slot of the method it
+ * overrides or is given the next new one. Slots are numbered from 1,
+ * slot 0 of a v-table being the link to the superclass's.
+ */
+public class VTable {
+
+	private final ArrayList<MethodDecl> methods; // the implementations, by slot-1
+	private final HashMap<String,Integer> slots; // the slot of each method name
+
+	/**
+	 * constructor -- initializes to the layout of the superclass
+	 * @param superTable the superclass's layout, or null if there is no
+	 * superclass
+	 */
+	public VTable(VTable superTable) {
+		if (superTable == null) {
+			methods = new ArrayList<MethodDecl>();
+			slots = new HashMap<String,Integer>();
+		}
+		else {
+			methods = new ArrayList<MethodDecl>(superTable.methods);
+			slots = new HashMap<String,Integer>(superTable.slots);
+		}
+	}
+
+	/**
+	 * enters a method declared by the class
+	 * @param md the method
+	 * @return the method's slot: that of the method it overrides, if any,
+	 * or else a new one
+	 */
+	public int enter(MethodDecl md) {
+		Integer slot = slots.get(md.name);
+		if (md.superMethod != null && slot != null) {
+			methods.set(slot-1, md);
+			return slot;
+		}
+		methods.add(md);
+		slots.put(md.name, methods.size());
+		return methods.size();
+	}
+
+	/**
+	 * @return the number of slots (other than slot 0)
+	 */
+	public int size() {
+		return methods.size();
+	}
+
+	/**
+	 * @param slot a slot, from 1 through size()
+	 * @return the method implementing that slot
+	 */
+	public MethodDecl methodAt(int slot) {
+		return methods.get(slot-1);
+	}
+
+	/**
+	 * @param name a method name
+	 * @return the method's slot, or -1 if the class has no such method
+	 */
+	public int slotOf(String name) {
+		Integer slot = slots.get(name);
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * @param name a method name
+	 * @return the declaration that implements the method for the class, or
+	 * null if the class has no such method
+	 */
+	public MethodDecl lookup(String name) {
+		Integer slot = slots.get(name);
+		return slot == null ? null : methods.get(slot-1);
+	}
+}
@@ -12,6 +12,7 @@ public class VoidType extends Type {
 	 */
 	public VoidType(int pos) {
 		super(pos);
+		kind = NodeKind.VOID_TYPE;
 	}
 
 	/**
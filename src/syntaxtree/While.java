@@ -20,6 +20,7 @@ public class While extends BreakTarget {
 	 */
 	public While(int pos, Exp aexp, Statement abody) {
 		super(pos);
+		kind = NodeKind.WHILE;
 		exp=aexp; body=abody;
 	}
 
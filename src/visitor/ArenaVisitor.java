@@ -0,0 +1,21 @@
+package visitor;
+
+import syntaxtree.AstArena;
+
+/**
+ * a visitor of the nodes of an AstArena, in the order of a depth-first
+ * walk (see AstArena.walk); the cursor is at the node being entered or left
+ */
+public interface ArenaVisitor {
+
+	/**
+	 * @param c a cursor at the node
+	 * @return whether to visit the node's children
+	 */
+	public boolean enter(AstArena.Cursor c);
+
+	/**
+	 * @param c a cursor at the node, after its children have been visited
+	 */
+	public void leave(AstArena.Cursor c);
+}
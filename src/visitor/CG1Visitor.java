@@ -20,9 +20,6 @@ public class CG1Visitor extends ASTvisitor {
 	// IO stream to which we will emit code
 	CodeStream code;
 	
-	// v-table offset of next method we encounter
-	int currentMethodOffset;
-	
 	// offset in object of next "object" instance variable we encounter
 	int currentObjInstVarOffset;
 	
@@ -32,11 +29,8 @@ public class CG1Visitor extends ASTvisitor {
 	// stack-offset of next formal parameter we encounter
 	int currentFormalVarOffset;
 	
-	// stack method tables for current class and all superclasses
-	Stack<Vector<String>> superclassMethodTables;
-	
-	// current method table
-	Vector<String> currentMethodTable;
+	// method layout of the current class
+	VTable currentVTable;
 	
 	public CG1Visitor(ErrorMsg e, PrintStream out) {
 		errorMsg = e;
@@ -45,12 +39,9 @@ public class CG1Visitor extends ASTvisitor {
 	
 	private void initInstanceVars(ErrorMsg e, PrintStream out) {
 		errorMsg = e;
-		currentMethodOffset = 0;
 		currentObjInstVarOffset = 0;
 		currentDataInstVarOffset = 0;
 		code = new CodeStream(out, e);
-		superclassMethodTables = new Stack<Vector<String>>();
-		superclassMethodTables.addElement(new Vector<String>());
 	}
 	
 	private ClassDecl getObjClassDecl(ClassDecl cd){
@@ -60,56 +51,10 @@ public class CG1Visitor extends ASTvisitor {
 			return getObjClassDecl(cd.superLink);
 	}
 	
-	private int numMethods(ClassDecl cd){
-		if (cd == null)
-			return 0;
-		else if(cd.superLink == null)
-			return cd.methodTable.size();		
-		else {
-			Object[] methodTableArray = cd.methodTable.keySet().toArray();
-			int overlap = 0;
-			for (Object method : methodTableArray){
-				if (cd.superLink.methodTable.containsKey(method))
-					overlap++;
-			}
-			return cd.methodTable.size() - overlap + numMethods(cd.superLink);
-		}
-	}
-	
-	private void registerMethodInTable(MethodDecl md){
-		//&& !this.currentMethodTable.contains(md.name + "_" + md.classDecl.name)
-		//if (!this.currentMethodTable.contains("fcn_" + md.uniqueId + "_" + md.name))
-		String superMthdLabel = null;
-		String userSuperMthdLabel = null;
-		if(md.superMethod != null){
-			superMthdLabel = md.superMethod.name + "_" + md.superMethod.classDecl.name;
-			userSuperMthdLabel = "fcn_" + md.superMethod.uniqueId + "_" + md.superMethod.name; 
-		}
-		int superLabelIndx = this.currentMethodTable.indexOf(superMthdLabel);
-		int userLabelIndx = this.currentMethodTable.indexOf(userSuperMthdLabel);
-		if(superLabelIndx >= 0)
-			if(md.pos < 0 )
-				this.currentMethodTable.set(superLabelIndx, md.name + "_" + md.classDecl.name);
-			else
-				this.currentMethodTable.set(superLabelIndx, "fcn_" + md.uniqueId + "_" + md.name);
-		else if (userLabelIndx >= 0)
-			if (md.pos < 0)
-				this.currentMethodTable.set(userLabelIndx, md.name + "_" + md.classDecl.name);
-			else
-				this.currentMethodTable.set(userLabelIndx, "fcn_" + md.uniqueId + "_" + md.name);
-
-		else if(md.pos < 0 ){
-			this.currentMethodTable.add(md.name + "_" + md.classDecl.name);
-		}
-		else {
-			this.currentMethodTable.add("fcn_" + md.uniqueId + "_" + md.name);
-		}	
-	}
-	
 	private int wordsOnStackFrame(VarDeclList vdl){
 		int num = 0;
 		for(VarDecl vd : vdl){
-			if(vd.type instanceof IntegerType)
+			if(vd.type == Types.INT)
 				num += 2;
 			else
 				num +=1;
@@ -119,9 +64,9 @@ public class CG1Visitor extends ASTvisitor {
 	
 	private int wordsOnStackFrame(Type t){
 		int num = 0;
-		if (t instanceof VoidType)
+		if (t == Types.VOID)
 			num = 0;
-		else if(t instanceof IntegerType)
+		else if(t == Types.INT)
 			num = 2;
 		else 
 			num = 1;
@@ -129,12 +74,12 @@ public class CG1Visitor extends ASTvisitor {
 	}
 	
 	private boolean isDataType(Type t){
-		if (t instanceof IntegerType || t instanceof BooleanType)
+		if (t == Types.INT || t == Types.BOOLEAN)
 			return true;
 		return false;
 	}
 	private boolean isObjectType(Type t){
-		if (t instanceof IntegerType || t instanceof BooleanType || t instanceof VoidType)
+		if (t == Types.INT || t == Types.BOOLEAN || t == Types.VOID)
 			return false;
 		return true;
 	}
@@ -146,8 +91,7 @@ public class CG1Visitor extends ASTvisitor {
 	}
 	
 	public Object visitClassDecl(ClassDecl n){ // done
-		this.currentMethodTable = (Vector<String>) this.superclassMethodTables.peek().clone();
-		this.currentMethodOffset = 1 + numMethods(n.superLink);
+		this.currentVTable = new VTable(n.superLink == null ? null : n.superLink.vtable);
 		if(n.superLink == null)
 			this.currentDataInstVarOffset = -16;
 		else
@@ -159,16 +103,15 @@ public class CG1Visitor extends ASTvisitor {
 		super.visitClassDecl(n);
 		n.numDataInstVars = (-16 - this.currentDataInstVarOffset)/4;
 		n.numObjInstVars = this.currentObjInstVarOffset/4;
+		n.vtable = this.currentVTable;
 		code.emit(n, "CLASS_" + n.name + ":");
 		if(n.superLink == null)
 			code.emit(n, ".word 0");
 		else
 			code.emit(n, ".word CLASS_" + n.superLink.name);
-		for (String method: this.currentMethodTable)
-			code.emit(n, ".word " + method);
-		this.superclassMethodTables.push(this.currentMethodTable);
+		for (int slot = 1; slot <= n.vtable.size(); slot++)
+			code.emit(n, ".word " + n.vtable.methodAt(slot).label());
 		n.subclasses.accept(this);
-		this.superclassMethodTables.pop();
 		code.emit(n, "CLASS_END_" + n.name + ":");
 		return null;
 	}
@@ -178,13 +121,7 @@ public class CG1Visitor extends ASTvisitor {
 		n.thisPtrOffset = 4*(1 + num);
 		this.currentFormalVarOffset = n.thisPtrOffset;
 		super.visitMethodDecl(n);
-		if(n.superMethod != null)
-			n.vtableOffset = n.superMethod.vtableOffset;
-		else {
-			n.vtableOffset = this.currentMethodOffset;
-			this.currentMethodOffset +=1;
-		}
-		this.registerMethodInTable(n);
+		n.vtableOffset = this.currentVTable.enter(n);
 		return null;
 	}
 	
@@ -204,7 +141,7 @@ public class CG1Visitor extends ASTvisitor {
 	
 	public Object visitFormalDecl(FormalDecl n){ //done
 		super.visitFormalDecl(n);
-		if(n.type instanceof IntegerType)
+		if(n.type == Types.INT)
 			this.currentFormalVarOffset -= 8;
 		else
 			this.currentFormalVarOffset -=4;
@@ -100,7 +100,7 @@ public class CG3Visitor extends ASTvisitor {
 			int stackDepth = stackHeight + n.link.offset;
 			code.emit(n, "lw $t0, " + stackDepth + "($sp)");
 		}
-		if(n.type instanceof IntegerType){
+		if(n.type == Types.INT){
 			stackHeight += 8;
 			code.emit(n, "subu $sp, $sp, 8");
 			code.emit(n, "sw $s5, 4($sp)");
@@ -178,7 +178,7 @@ public class CG3Visitor extends ASTvisitor {
 	public Object visitEquals(Equals n){ //done*
 		n.left.accept(this);
 		n.right.accept(this);
-		if (n.left.type instanceof IntegerType && n.right.type instanceof IntegerType){
+		if (n.left.type == Types.INT && n.right.type == Types.INT){
 			code.emit(n, "lw $t0, ($sp)");
 			code.emit(n, "lw $t1, 8($sp)");
 			code.emit(n, "seq $t0, $t0, $t1");
@@ -266,7 +266,7 @@ public class CG3Visitor extends ASTvisitor {
 		code.emit(n, "sll $t2, $t2, 2");
 		code.emit(n, "addu $t2, $t2, $t0");
 		code.emit(n, "lw $t0, ($t2)");
-		if(n.type instanceof IntegerType){
+		if(n.type == Types.INT){
 			code.emit(n, "sw $t0, 4($sp)");
 			code.emit(n, "sw $s5, 8($sp)");
 			code.emit(n, "addu $sp, $sp, 4");
@@ -285,7 +285,7 @@ public class CG3Visitor extends ASTvisitor {
 		code.emit(n, "lw $t0, ($sp)");
 		code.emit(n, "beq $t0, $zero, nullPtrException");
 		code.emit(n, "lw $t0, " + n.varDec.offset + "($t0)");
-		if(n.varDec.type instanceof IntegerType){
+		if(n.varDec.type == Types.INT){
 			code.emit(n, "subu $sp, $sp, 4");
 			code.emit(n, "sw $s5, 4($sp)");
 			code.emit(n, "sw $t0, ($sp)");
@@ -353,10 +353,7 @@ public class CG3Visitor extends ASTvisitor {
 			int savedStackHeight = stackHeight;
 			n.obj.accept(this);
 			n.parms.accept(this);
-			if(n.methodLink.pos < 0)
-				code.emit(n, "jal " + n.methodLink.name + "_" + n.methodLink.classDecl.name);
-			else 
-				code.emit(n, "jal fcn_" +  n.methodLink.uniqueId + "_" + n.methodLink.name);
+			code.emit(n, "jal " + receiverVTable(n).lookup(n.methName).label());
 
 			stackHeight = savedStackHeight + 4*wordsOnStackFrame(n.type);
 		}
@@ -367,12 +364,18 @@ public class CG3Visitor extends ASTvisitor {
 			code.emit(n, "lw $t0, " + (n.methodLink.thisPtrOffset - 4) + "($sp)");
 			code.emit(n, "beq $t0, $zero, nullPtrException");
 			code.emit(n, "lw $t0, -12($t0)");
-			code.emit(n, "lw $t0, " + (4*n.methodLink.vtableOffset) + "($t0)");
+			code.emit(n, "lw $t0, " + (4*receiverVTable(n).slotOf(n.methName)) + "($t0)");
 			code.emit(n, "jalr $t0");
 			stackHeight = savedStackHeight + 4*wordsOnStackFrame(n.type);
 		}
 		return null;
 	}
+
+	// the v-table layout (see CG1Visitor) of the static class of a call's
+	// object, by which the call is resolved
+	private static VTable receiverVTable(Call n) {
+		return ((IdentifierType)n.obj.type).link.vtable;
+	}
 	
 	public Object visitLocalVarDecl(LocalVarDecl n){ //done
 		n.initExp.accept(this);
@@ -507,7 +510,7 @@ public class CG3Visitor extends ASTvisitor {
 		code.emit(n, "lw $s2, " + stackHeight + "($sp)");
 		code.emit(n, "lw $t0, ($sp)");
 		int num = stackHeight + n.thisPtrOffset;
-		if(n.rtnType instanceof IntegerType){
+		if(n.rtnType == Types.INT){
 			code.emit(n, "sw $t0, " + (num - 4) + "($sp)");
 			code.emit(n, "sw $s5, " + num + "($sp)");
 		}
@@ -537,9 +540,9 @@ public class CG3Visitor extends ASTvisitor {
 	
 	private int wordsOnStackFrame(Type t){
 		int num = 0;
-		if (t instanceof VoidType)
+		if (t == Types.VOID)
 			num = 0;
-		else if(t instanceof IntegerType)
+		else if(t == Types.INT)
 			num = 2;
 		else 
 			num = 1;
@@ -549,7 +552,7 @@ public class CG3Visitor extends ASTvisitor {
 	private int wordsOnStackFrame(VarDeclList vdl){
 		int num = 0;
 		for(VarDecl vd : vdl){
-			if(vd.type instanceof IntegerType)
+			if(vd.type == Types.INT)
 				num += 2;
 			else
 				num +=1;
@@ -558,23 +561,18 @@ public class CG3Visitor extends ASTvisitor {
 	}
 	
 	private boolean isDataType(Type t){
-		if (t instanceof IntegerType || t instanceof BooleanType)
+		if (t == Types.INT || t == Types.BOOLEAN)
 			return true;
 		return false;
 	}
 	private boolean isObjectType(Type t){
-		if (t instanceof IntegerType || t instanceof BooleanType || t instanceof VoidType)
+		if (t == Types.INT || t == Types.BOOLEAN || t == Types.VOID)
 			return false;
 		return true;
 	}
 	
 	private boolean isSuperClass(ClassDecl c1, ClassDecl c2){
-		if(c1.superLink == null)
-			return false;
-		if(c1.superLink.equals(c2))
-			return true;
-		else
-			return isSuperClass(c1.superLink, c2);
+		return c1 != c2 && c1.isSubclassOf(c2);
 	}
 
 }
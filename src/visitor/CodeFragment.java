@@ -0,0 +1,52 @@
+package visitor;
+
+import java.io.*;
+
+/**
+ * the code generated for one class, kept so that a later compilation can
+ * reuse it
+ *
+ * The labels in the code end in the unique IDs of nodes, which change
+ * whenever nodes are added or removed elsewhere in the file; so the text
+ * is kept with those numbers taken out, and each is put back, from the
+ * node's current ID, when the code is reused (see text). The nodes are
+ * identified by their index in a list that the compilations both build
+ * the same way (see IncrementalCG3Visitor).
+ */
+public class CodeFragment {
+	public final int numLines; // the number of lines emitted
+	public final byte[] text; // the emitted text, without the labels' numbers
+	public final int[] labels; // for each number taken out: its offset in
+	                           // text, then the index of its node
+
+	/**
+	 * constructor
+	 * @param numLines the number of lines emitted
+	 * @param text the emitted text, without the labels' numbers
+	 * @param labels the offset in text of each number taken out, each
+	 * followed by the index of its node
+	 */
+	public CodeFragment(int numLines, byte[] text, int[] labels) {
+		this.numLines = numLines;
+		this.text = text;
+		this.labels = labels;
+	}
+
+	/**
+	 * @param ids the current unique ID of each node, by index
+	 * @return the text, with the nodes' IDs put back into the labels
+	 */
+	public byte[] text(int[] ids) {
+		if (labels.length == 0) return text;
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(text.length+4*labels.length);
+		int done = 0;
+		for (int i = 0; i < labels.length; i += 2) {
+			buf.write(text, done, labels[i]-done);
+			byte[] id = String.valueOf(ids[labels[i+1]]).getBytes();
+			buf.write(id, 0, id.length);
+			done = labels[i];
+		}
+		buf.write(text, done, text.length-done);
+		return buf.toByteArray();
+	}
+}
@@ -1,6 +1,7 @@
 package visitor;
 
 import java.io.PrintStream;
+import java.util.Random;
 import syntaxtree.AstNode;
 import errorMsg.ErrorMsg;
 
@@ -8,19 +9,74 @@ public class CodeStream {
 	private PrintStream out;
 	private ErrorMsg err;
 	String indentStr;
+	private Random random;
+	private int linesEmitted;
 	
 	private static boolean RANDOMSPACES = true;
 	
+	// number of lines emitted by each thread, for compilation statistics
+	private static final ThreadLocal<int[]> emitCounter =
+		new ThreadLocal<int[]>() {
+			protected int[] initialValue() {
+				return new int[1];
+			}
+		};
+	
 	public CodeStream(PrintStream ps, ErrorMsg e) {
 		out = ps;
 		err = e;
 		indentStr = "";
+		// seeded from the file name rather than shared with other streams,
+		// so that a given input always produces the same output, even when
+		// several compilations run concurrently
+		String fileName = e == null ? null : e.getFileName();
+		random = new Random(fileName == null ? 0 : fileName.hashCode());
 	}
 	public void flush() {
 		out.flush();
 	}
 	
+	/**
+	 * redirects subsequent lines to another stream
+	 * @param ps the new stream
+	 * @return the stream that was being written to before
+	 */
+	public PrintStream setOutput(PrintStream ps) {
+		PrintStream old = out;
+		out = ps;
+		return old;
+	}
+	
+	/**
+	 * @return the number of lines emitted to this code stream so far
+	 */
+	public int linesEmitted() {
+		return linesEmitted;
+	}
+	
+	/**
+	 * accounts for lines that were written to the output directly (e.g.,
+	 * reused from an earlier compilation) instead of being emitted, so that
+	 * subsequent lines come out exactly as if they had been emitted
+	 * @param n the number of lines
+	 */
+	public void skipLines(int n) {
+		for (int i = 0; i < n; i++) {
+			randomWhitespace();
+		}
+		linesEmitted += n;
+	}
+	
+	/**
+	 * @return the number of lines emitted by the current thread so far
+	 */
+	public static int emittedCount() {
+		return emitCounter.get()[0];
+	}
+	
 	public void emit(AstNode node, String str) {
+		emitCounter.get()[0]++;
+		linesEmitted++;
 		String className = ""+node.getClass();
 		int lastDotSpot = className.lastIndexOf(".");
 		className = className.substring(lastDotSpot+1);
@@ -55,6 +111,6 @@ public class CodeStream {
 	};
 	
 	private String randomWhitespace() {
-		return whiteSpace[(int)(whiteSpace.length*Math.random())];
+		return whiteSpace[random.nextInt(whiteSpace.length)];
 	}
 }
\ No newline at end of file
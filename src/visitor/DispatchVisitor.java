@@ -0,0 +1,301 @@
+package visitor;
+
+import syntaxtree.*;
+
+/**
+ * a visitor that walks the AST as ASTvisitor does, but that chooses the
+ * method for each node it reaches with a switch on the node's kind (see
+ * NodeKind), rather than by calling the node's accept method
+ *
+ * The call to accept, and from there to the visitor, is made at a few call
+ * sites for every kind of node and every kind of visitor; a switch on an
+ * int, and a direct call to the method for the kind, avoid that. Whether
+ * that makes a walk faster depends on the JVM; main.VisitorBench compares
+ * the two. A subclass overrides the same methods as a subclass of
+ * ASTvisitor would, with the same effect; it should visit a child with
+ * dispatch, rather than with accept.
+ */
+public class DispatchVisitor extends InhVisitor {
+
+	/**
+	 * visits a node
+	 * @param n the node
+	 * @return the result of the visit
+	 */
+	public final Object dispatch(AstNode n) {
+		switch (n.kind) {
+			case NodeKind.AND: return visitAnd((And)n);
+			case NodeKind.ARRAY_LENGTH: return visitArrayLength((ArrayLength)n);
+			case NodeKind.ARRAY_LOOKUP: return visitArrayLookup((ArrayLookup)n);
+			case NodeKind.ARRAY_TYPE: return visitArrayType((ArrayType)n);
+			case NodeKind.ASSIGN: return visitAssign((Assign)n);
+			case NodeKind.BLOCK: return visitBlock((Block)n);
+			case NodeKind.BOOLEAN_TYPE: return visitBooleanType((BooleanType)n);
+			case NodeKind.BREAK: return visitBreak((Break)n);
+			case NodeKind.CALL: return visitCall((Call)n);
+			case NodeKind.CALL_STATEMENT: return visitCallStatement((CallStatement)n);
+			case NodeKind.CASE: return visitCase((Case)n);
+			case NodeKind.CAST: return visitCast((Cast)n);
+			case NodeKind.CLASS_DECL: return visitClassDecl((ClassDecl)n);
+			case NodeKind.DEFAULT: return visitDefault((Default)n);
+			case NodeKind.DIVIDE: return visitDivide((Divide)n);
+			case NodeKind.EQUALS: return visitEquals((Equals)n);
+			case NodeKind.FALSE: return visitFalse((False)n);
+			case NodeKind.FORMAL_DECL: return visitFormalDecl((FormalDecl)n);
+			case NodeKind.GREATER_THAN: return visitGreaterThan((GreaterThan)n);
+			case NodeKind.IDENTIFIER_EXP: return visitIdentifierExp((IdentifierExp)n);
+			case NodeKind.IDENTIFIER_TYPE: return visitIdentifierType((IdentifierType)n);
+			case NodeKind.IF: return visitIf((If)n);
+			case NodeKind.INST_VAR_ACCESS: return visitInstVarAccess((InstVarAccess)n);
+			case NodeKind.INST_VAR_DECL: return visitInstVarDecl((InstVarDecl)n);
+			case NodeKind.INSTANCE_OF: return visitInstanceOf((InstanceOf)n);
+			case NodeKind.INTEGER_LITERAL: return visitIntegerLiteral((IntegerLiteral)n);
+			case NodeKind.INTEGER_TYPE: return visitIntegerType((IntegerType)n);
+			case NodeKind.LESS_THAN: return visitLessThan((LessThan)n);
+			case NodeKind.LOCAL_DECL_STATEMENT: return visitLocalDeclStatement((LocalDeclStatement)n);
+			case NodeKind.LOCAL_VAR_DECL: return visitLocalVarDecl((LocalVarDecl)n);
+			case NodeKind.METHOD_DECL_NON_VOID: return visitMethodDeclNonVoid((MethodDeclNonVoid)n);
+			case NodeKind.METHOD_DECL_VOID: return visitMethodDeclVoid((MethodDeclVoid)n);
+			case NodeKind.MINUS: return visitMinus((Minus)n);
+			case NodeKind.NEW_ARRAY: return visitNewArray((NewArray)n);
+			case NodeKind.NEW_OBJECT: return visitNewObject((NewObject)n);
+			case NodeKind.NOT: return visitNot((Not)n);
+			case NodeKind.NULL: return visitNull((Null)n);
+			case NodeKind.NULL_TYPE: return visitNullType((NullType)n);
+			case NodeKind.OR: return visitOr((Or)n);
+			case NodeKind.PLUS: return visitPlus((Plus)n);
+			case NodeKind.PROGRAM: return visitProgram((Program)n);
+			case NodeKind.REMAINDER: return visitRemainder((Remainder)n);
+			case NodeKind.STRING_LITERAL: return visitStringLiteral((StringLiteral)n);
+			case NodeKind.SUPER: return visitSuper((Super)n);
+			case NodeKind.SWITCH: return visitSwitch((Switch)n);
+			case NodeKind.THIS: return visitThis((This)n);
+			case NodeKind.TIMES: return visitTimes((Times)n);
+			case NodeKind.TRUE: return visitTrue((True)n);
+			case NodeKind.VOID_TYPE: return visitVoidType((VoidType)n);
+			case NodeKind.WHILE: return visitWhile((While)n);
+			default: return n.accept(this);
+		}
+	}
+
+	// the lists are visited by their own methods, chosen by their static types
+
+	public final Object dispatch(ClassDeclList lst) {
+		return visitClassDeclList(lst);
+	}
+
+	public final Object dispatch(DeclList lst) {
+		return visitDeclList(lst);
+	}
+
+	public final Object dispatch(ExpList lst) {
+		return visitExpList(lst);
+	}
+
+	public final Object dispatch(StatementList lst) {
+		return visitStatementList(lst);
+	}
+
+	public final Object dispatch(VarDeclList lst) {
+		return visitVarDeclList(lst);
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes") // as declared in InhVisitor
+	public Object visitAstList(AstList lst) {
+		for (int i = 0; i < lst.size(); i++) {
+			Object obj = lst.elementAt(i);
+			if (obj instanceof AstNode) {
+				dispatch((AstNode)obj);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Object visitAstNode(AstNode n) {
+		return null;
+	}
+
+	@Override
+	public Object visitArrayLookup(ArrayLookup n) {
+		super.visitArrayLookup(n);
+		dispatch(n.arrExp);
+		dispatch(n.idxExp);
+		return null;
+	}
+
+	@Override
+	public Object visitArrayType(ArrayType n) {
+		super.visitArrayType(n);
+		dispatch(n.baseType);
+		return null;
+	}
+
+	@Override
+	public Object visitAssign(Assign n) {
+		super.visitAssign(n);
+		dispatch(n.lhs);
+		dispatch(n.rhs);
+		return null;
+	}
+
+	@Override
+	public Object visitBinExp(BinExp n) {
+		super.visitBinExp(n);
+		dispatch(n.left);
+		dispatch(n.right);
+		return null;
+	}
+
+	@Override
+	public Object visitBlock(Block n) {
+		super.visitBlock(n);
+		dispatch(n.stmts);
+		return null;
+	}
+
+	@Override
+	public Object visitCast(Cast n) {
+		super.visitCast(n);
+		dispatch(n.castType);
+		dispatch(n.exp);
+		return null;
+	}
+
+	@Override
+	public Object visitCall(Call n) {
+		super.visitCall(n);
+		dispatch(n.obj);
+		dispatch(n.parms);
+		return null;
+	}
+
+	@Override
+	public Object visitCase(Case n) {
+		super.visitCase(n);
+		dispatch(n.exp);
+		return null;
+	}
+
+	@Override
+	public Object visitClassDecl(ClassDecl n) {
+		super.visitClassDecl(n);
+		dispatch(n.decls);
+		return null;
+	}
+
+	@Override
+	public Object visitCallStatement(CallStatement n) {
+		super.visitCallStatement(n);
+		dispatch(n.callExp);
+		return null;
+	}
+
+	@Override
+	public Object visitIf(If n) {
+		super.visitIf(n);
+		dispatch(n.exp);
+		dispatch(n.trueStmt);
+		dispatch(n.falseStmt);
+		return null;
+	}
+
+	@Override
+	public Object visitInstanceOf(InstanceOf n) {
+		super.visitInstanceOf(n);
+		dispatch(n.exp);
+		dispatch(n.checkType);
+		return null;
+	}
+
+	@Override
+	public Object visitInstVarAccess(InstVarAccess n) {
+		super.visitInstVarAccess(n);
+		dispatch(n.exp);
+		return null;
+	}
+
+	@Override
+	public Object visitLocalDeclStatement(LocalDeclStatement n) {
+		super.visitLocalDeclStatement(n);
+		dispatch(n.localVarDecl);
+		return null;
+	}
+
+	@Override
+	public Object visitLocalVarDecl(LocalVarDecl n) {
+		super.visitLocalVarDecl(n);
+		dispatch(n.initExp);
+		return null;
+	}
+
+	@Override
+	public Object visitMethodDecl(MethodDecl n) {
+		super.visitMethodDecl(n);
+		dispatch(n.formals);
+		dispatch(n.stmts);
+		return null;
+	}
+
+	@Override
+	public Object visitMethodDeclNonVoid(MethodDeclNonVoid n) {
+		super.visitMethodDeclNonVoid(n);
+		dispatch(n.rtnType);
+		dispatch(n.rtnExp);
+		return null;
+	}
+
+	@Override
+	public Object visitNewArray(NewArray n) {
+		super.visitNewArray(n);
+		dispatch(n.objType);
+		dispatch(n.sizeExp);
+		return null;
+	}
+
+	@Override
+	public Object visitNewObject(NewObject n) {
+		super.visitNewObject(n);
+		dispatch(n.objType);
+		return null;
+	}
+
+	@Override
+	public Object visitProgram(Program n) {
+		super.visitProgram(n);
+		dispatch(n.mainStatement);
+		dispatch(n.classDecls);
+		return null;
+	}
+
+	@Override
+	public Object visitSwitch(Switch n) {
+		super.visitSwitch(n);
+		dispatch(n.exp);
+		dispatch(n.stmts);
+		return null;
+	}
+
+	@Override
+	public Object visitUnExp(UnExp n) {
+		super.visitUnExp(n);
+		dispatch(n.exp);
+		return null;
+	}
+
+	@Override
+	public Object visitVarDecl(VarDecl n) {
+		super.visitVarDecl(n);
+		dispatch(n.type);
+		return null;
+	}
+
+	@Override
+	public Object visitWhile(While n) {
+		super.visitWhile(n);
+		dispatch(n.exp);
+		dispatch(n.body);
+		return null;
+	}
+}
@@ -0,0 +1,1214 @@
+package visitor;
+
+import syntaxtree.*;
+
+import errorMsg.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * the semantic analysis of Sem1Visitor through Sem5Visitor, done in one walk
+ * over the declarations and one walk over the whole AST, rather than in
+ * five walks of the AST
+ *
+ * declareClasses does the work of Sem1Visitor: it creates the predefined
+ * classes, and enters each class, instance variable and method into its
+ * symbol table. linkClasses does that of Sem2Visitor: it links each class
+ * to its superclass, and checks the hierarchy for cycles. check then does
+ * the name resolution of Sem3Visitor, the type checking of Sem4Visitor and
+ * the flow checking of Sem5Visitor in a single walk, which resolves,
+ * type-checks and flow-checks each node in turn. The annotations are those
+ * of the five passes.
+ *
+ * So are the diagnostics. Each of the three kinds is found in the order in
+ * which its own pass would have found it; a kind is held back, and reported
+ * only if the kinds before it found no errors, since a pass did not run if
+ * an earlier one had reported an error. The types of the declarations
+ * (those of instance variables, formal parameters and method results) are
+ * resolved, without any messages, before the walk, so that a call or an
+ * instance-variable access can be checked before the walk has reached the
+ * declaration that it refers to.
+ *
+ * Once the declarations are resolved, the check of one method reads the
+ * symbol tables but writes only to its own subtree; so in a large program,
+ * on a machine with more than one processor, the methods are checked in
+ * parallel. Each task checks a run of consecutive declarations, in source
+ * order, into diagnostics of its own, and the tasks' diagnostics are put
+ * together in the order of the runs, so that they are those of the
+ * sequential walk.
+ */
+public class FusedSemVisitor extends ASTvisitor {
+
+	// the fewest declarations that are checked in parallel, and the most
+	// that one task checks
+	private static final int PARALLEL_THRESHOLD = 256;
+	private static final int TASK_SIZE = 32;
+
+	// the pool that checks the declarations, created when it is first needed
+	private static ForkJoinPool pool;
+
+	private ErrorMsg errorMsg;
+	private SymbolTable<ClassDecl> globalSymTab;
+
+	// the predefined classes, in the order in which Sem1Visitor checks them
+	private Vector<ClassDecl> predefined;
+
+	private ClassDecl currentClass;
+	private IdentifierType currentClassType;
+	private IdentifierType currentSuperclassType;
+	private IdentifierType theStringType;
+	private SymbolTable<VarDecl> localSymTab;
+	private Stack<BreakTarget> breakTargetStack;
+	private boolean sawBreak; // whether the current loop has a break
+	private ConstEvalVisitor constEval;
+
+	// stands, in localSymTab, for a variable that is not (or not yet)
+	// initialized: one that is being declared, or whose declaration, in a
+	// switch, has been skipped by a break
+	private VarDecl uninitVarDecl;
+
+	// the diagnostics of the name resolution, the type checking and the
+	// flow checking, held back until the walk is done
+	private Diagnostics resolveErrors;
+	private Diagnostics typeErrors;
+	private Diagnostics flowErrors;
+
+	// the CPU time used, and bytes allocated, by the tasks of the last check
+	// that ran on threads other than the one that called it
+	private long otherCpuNanos;
+	private long otherAllocatedBytes;
+
+	/**
+	 * constructor
+	 * @param e the error-message object
+	 */
+	public FusedSemVisitor(ErrorMsg e) {
+		errorMsg = e;
+		globalSymTab = new SymbolTable<ClassDecl>();
+		predefined = new Vector<ClassDecl>();
+		localSymTab = new SymbolTable<VarDecl>();
+		breakTargetStack = new Stack<BreakTarget>();
+		constEval = new ConstEvalVisitor();
+		resolveErrors = new Diagnostics();
+		typeErrors = new Diagnostics();
+		flowErrors = new Diagnostics();
+	}
+
+	/**
+	 * constructor for a visitor that checks some of the declarations that
+	 * another one does
+	 * @param parent the other visitor
+	 */
+	private FusedSemVisitor(FusedSemVisitor parent) {
+		this(parent.errorMsg);
+		globalSymTab = parent.globalSymTab;
+		uninitVarDecl = parent.uninitVarDecl;
+		theStringType = parent.theStringType;
+	}
+
+	/*************** declarations (Sem1Visitor, Sem2Visitor) ****************/
+
+	/**
+	 * creates the predefined classes, and enters the program's classes and
+	 * their members into the symbol tables
+	 * @param prog the program
+	 * @return the global symbol table
+	 */
+	public Hashtable<String,ClassDecl> declareClasses(Program prog) {
+		ClassDecl objectDecl = createClass("Object", "");
+		ClassDecl stringDecl = createClass("String", "Object");
+		ClassDecl libDecl = createClass("Lib", "Object");
+		ClassDecl runMainDecl = createClass("RunMain", "Object");
+		ClassDecl dataArrayDecl = createClass("_DataArray", "Object");
+		ClassDecl objectArrayDecl = createClass("_ObjectArray", "Object");
+		addDummyMethod(objectDecl, "equals", "boolean", "Object");
+		addDummyMethod(libDecl, "readLine", "String");
+		addDummyMethod(libDecl, "readInt", "int");
+		addDummyMethod(libDecl, "readChar", "int");
+		addDummyMethod(libDecl, "printStr", "void", "String");
+		addDummyMethod(libDecl, "printBool", "void", "boolean");
+		addDummyMethod(libDecl, "printInt", "void", "int");
+		addDummyMethod(libDecl, "intToString", "String", "int");
+		addDummyMethod(libDecl, "intToChar", "String", "int");
+		addDummyMethod(stringDecl, "equals", "boolean", "Object");
+		addDummyMethod(stringDecl, "concat", "String", "String");
+		addDummyMethod(stringDecl, "substring", "String", "int", "int");
+		addDummyMethod(stringDecl, "length", "int");
+		addDummyMethod(stringDecl, "charAt", "int", "int");
+		addDummyMethod(stringDecl, "compareTo", "int", "String");
+		predefined.add(objectDecl);
+		predefined.add(libDecl);
+		predefined.add(stringDecl);
+		predefined.add(runMainDecl);
+		predefined.add(dataArrayDecl);
+		predefined.add(objectArrayDecl);
+		for (ClassDecl cd : predefined) {
+			declareClass(cd);
+		}
+		for (ClassDecl cd : predefined) {
+			linkClass(cd);
+		}
+		for (ClassDecl cd : prog.classDecls) {
+			declareClass(cd);
+		}
+		return globalSymTab;
+	}
+
+	/**
+	 * links the program's classes to their superclasses, and checks the
+	 * class hierarchy
+	 * @param prog the program
+	 */
+	public void linkClasses(Program prog) {
+		ClassDeclList classes = prog.classDecls;
+		for (ClassDecl cd : classes) {
+			linkClass(cd);
+		}
+		for (ClassDecl cd : classes) {
+			if (cd.superName.equals("String") || cd.superName.equals("RunMain")) {
+				errorMsg.error(cd.pos, cd.superName+" cannot be a superclass");
+			}
+			ClassDecl other = detectClassCycle(cd, classes.size()+5);
+			if (other != null) {
+				errorMsg.error(cd.pos, "Class inheritance cycle detected: "+
+						cd.name+", "+other.name+", ...");
+			}
+		}
+	}
+
+	private void declareClass(ClassDecl cd) {
+		if (globalSymTab.get(cd.symbol()) != null) {
+			errorMsg.error(cd.pos, "Duplicate class name: "+cd.name);
+		}
+		globalSymTab.put(cd.symbol(), cd);
+		SymbolTable<InstVarDecl> instVarTable = SymbolTable.of(cd.instVarTable);
+		SymbolTable<MethodDecl> methodTable = SymbolTable.of(cd.methodTable);
+		for (Decl d : cd.decls) {
+			if (d instanceof InstVarDecl) {
+				if (!insertDecl(instVarTable, d.symbol(), (InstVarDecl)d)) {
+					errorMsg.error(d.pos, "Duplicate instance variable name: "+d.name);
+				}
+			}
+			else if (d instanceof MethodDecl) {
+				MethodDecl md = (MethodDecl)d;
+				md.classDecl = cd;
+				if (!insertDecl(methodTable, md.symbol(), md)) {
+					errorMsg.error(md.pos, "Duplicate method name: "+md.name);
+				}
+			}
+		}
+	}
+
+	private void linkClass(ClassDecl cd) {
+		if (cd.superName == null || cd.superName.equals("")) return;
+		ClassDecl superDecl = globalSymTab.get(Symbol.intern(cd.superName));
+		if (superDecl == null) {
+			errorMsg.error(cd.pos, "Undefined superclass name: "+cd.superName);
+		}
+		else {
+			cd.superLink = superDecl;
+			superDecl.subclasses.addElement(cd);
+		}
+	}
+
+	/**
+	 * @param cd a class
+	 * @param limit the number of superclass links to follow
+	 * @return the class's superclass, if the class is its own ancestor
+	 * within the given number of links; otherwise null
+	 */
+	private static ClassDecl detectClassCycle(ClassDecl cd, int limit) {
+		ClassDecl cur = cd.superLink;
+		for (int i = 0; cur != null && i < limit; i++) {
+			if (cur == cd) return cd.superLink;
+			cur = cur.superLink;
+		}
+		return null;
+	}
+
+	private static ClassDecl createClass(String name, String superName) {
+		return new ClassDecl(-1, name, superName, new DeclList());
+	}
+
+	private static void addDummyMethod(ClassDecl cd, String name, String rtnTypeName,
+			String... parmTypeNames) {
+		VarDeclList formals = new VarDeclList();
+		for (int i = 0; i < parmTypeNames.length; i++) {
+			formals.addElement(new FormalDecl(-1, convertToType(parmTypeNames[i]), "parm"+i));
+		}
+		Type rtnType = convertToType(rtnTypeName);
+		StatementList stmts = new StatementList();
+		MethodDecl md;
+		if (rtnType == null) {
+			md = new MethodDeclVoid(-1, name, formals, stmts);
+		}
+		else {
+			Exp rtnExp = new Null(-1);
+			md = new MethodDeclNonVoid(-1, rtnType, name, formals, stmts, rtnExp);
+		}
+		cd.decls.addElement(md);
+	}
+
+	private static Type convertToType(String name) {
+		if (name.equals("void")) return null;
+		else if (name.equals("boolean")) return new BooleanType(-1);
+		else if (name.equals("int")) return new IntegerType(-1);
+		else return new IdentifierType(-1, name);
+	}
+
+	/*************** the fused walk (Sem3Visitor, Sem4Visitor, Sem5Visitor) ****************/
+
+	/**
+	 * resolves names, checks types and checks the flow of control, in the
+	 * predefined classes and in the program
+	 * @param prog the program
+	 */
+	public void check(Program prog) {
+		otherCpuNanos = 0;
+		otherAllocatedBytes = 0;
+		uninitVarDecl = new InstVarDecl(-1, null, "$$$$");
+		theStringType = Types.classType(globalSymTab.get(Symbol.intern("String")));
+
+		// what the walk checks: the declarations of the predefined classes,
+		// the main statement, and the declarations of the program's classes;
+		// each with its class (null for the main statement)
+		Vector<ClassDecl> classes = new Vector<ClassDecl>(predefined);
+		classes.addAll(prog.classDecls);
+		Vector<AstNode> units = new Vector<AstNode>();
+		Vector<ClassDecl> unitClasses = new Vector<ClassDecl>();
+		for (ClassDecl cd : predefined) {
+			addUnits(cd, units, unitClasses);
+		}
+		units.add(prog.mainStatement);
+		unitClasses.add(null);
+		for (ClassDecl cd : prog.classDecls) {
+			addUnits(cd, units, unitClasses);
+		}
+
+		// settle what the units share before any of them are checked
+		for (ClassDecl cd : classes) {
+			Types.classType(cd);
+			for (Decl d : cd.decls) {
+				if (d instanceof VarDecl) {
+					resolve(((VarDecl)d).type);
+				}
+				else if (d instanceof MethodDecl) {
+					for (VarDecl formal : ((MethodDecl)d).formals) {
+						resolve(formal.type);
+					}
+					if (d instanceof MethodDeclNonVoid) {
+						resolve(((MethodDeclNonVoid)d).rtnType);
+					}
+				}
+			}
+		}
+
+		if (units.size() >= PARALLEL_THRESHOLD &&
+				Runtime.getRuntime().availableProcessors() > 1) {
+			checkInParallel(units, unitClasses);
+		}
+		else {
+			checkUnits(units, unitClasses, 0, units.size());
+		}
+		if (!resolveErrors.isEmpty()) {
+			resolveErrors.report(errorMsg);
+		}
+		else if (!typeErrors.isEmpty()) {
+			typeErrors.report(errorMsg);
+		}
+		else {
+			flowErrors.report(errorMsg);
+		}
+	}
+
+	/**
+	 * @return the CPU time, in nanoseconds, that the last check used on
+	 * threads other than the one that called it, or -1 if it is not known
+	 */
+	public long otherCpuNanos() {
+		return otherCpuNanos;
+	}
+
+	/**
+	 * @return the bytes that the last check allocated on threads other than
+	 * the one that called it, or -1 if that is not known
+	 */
+	public long otherAllocatedBytes() {
+		return otherAllocatedBytes;
+	}
+
+	private static void addUnits(ClassDecl cd, Vector<AstNode> units,
+			Vector<ClassDecl> unitClasses) {
+		for (Decl d : cd.decls) {
+			units.add(d);
+			unitClasses.add(cd);
+		}
+	}
+
+	private static synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool();
+		}
+		return pool;
+	}
+
+	/**
+	 * checks the units in runs of TASK_SIZE, each by its own visitor in a
+	 * task of its own, and adds their diagnostics to this visitor's
+	 * @param units the units
+	 * @param unitClasses their classes
+	 */
+	private void checkInParallel(final Vector<AstNode> units,
+			final Vector<ClassDecl> unitClasses) {
+		final int numUnits = units.size();
+		final Thread caller = Thread.currentThread();
+		final Vector<FusedSemVisitor> workers = new Vector<FusedSemVisitor>();
+		final Vector<RecursiveAction> tasks = new Vector<RecursiveAction>();
+		for (int first = 0; first < numUnits; first += TASK_SIZE) {
+			final FusedSemVisitor worker = new FusedSemVisitor(this);
+			final int start = first;
+			workers.add(worker);
+			tasks.add(new RecursiveAction() {
+				protected void compute() {
+					boolean elsewhere = Thread.currentThread() != caller;
+					long cpu = elsewhere ? ThreadUsage.cpuTime() : 0;
+					long alloc = elsewhere ? ThreadUsage.allocatedBytes() : 0;
+					worker.checkUnits(units, unitClasses, start,
+							Math.min(start+TASK_SIZE, numUnits));
+					if (elsewhere) {
+						worker.otherCpuNanos = ThreadUsage.since(cpu, ThreadUsage.cpuTime());
+						worker.otherAllocatedBytes =
+							ThreadUsage.since(alloc, ThreadUsage.allocatedBytes());
+					}
+				}
+			});
+		}
+		pool().invoke(new RecursiveAction() {
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+		for (FusedSemVisitor worker : workers) {
+			resolveErrors.addAll(worker.resolveErrors);
+			typeErrors.addAll(worker.typeErrors);
+			flowErrors.addAll(worker.flowErrors);
+			otherCpuNanos = ThreadUsage.plus(otherCpuNanos, worker.otherCpuNanos);
+			otherAllocatedBytes =
+				ThreadUsage.plus(otherAllocatedBytes, worker.otherAllocatedBytes);
+		}
+	}
+
+	/**
+	 * checks units first through last-1, in order
+	 * @param units the units
+	 * @param unitClasses their classes
+	 */
+	private void checkUnits(Vector<AstNode> units, Vector<ClassDecl> unitClasses,
+			int first, int last) {
+		for (int i = first; i < last; i++) {
+			ClassDecl cd = unitClasses.elementAt(i);
+			currentClass = cd;
+			currentClassType = cd == null ? null : Types.classType(cd);
+			currentSuperclassType = cd == null || cd.superLink == null ?
+					null : Types.classType(cd.superLink);
+			localSymTab = new SymbolTable<VarDecl>();
+			sawBreak = false;
+			units.elementAt(i).accept(this);
+		}
+		currentClass = null;
+		currentClassType = null;
+		currentSuperclassType = null;
+	}
+
+	/**
+	 * links a declared type to its class, without reporting a missing class;
+	 * the walk reports it when it reaches the type
+	 * @param t the type
+	 */
+	private void resolve(Type t) {
+		if (t instanceof ArrayType) {
+			resolve(((ArrayType)t).baseType);
+		}
+		else if (t instanceof IdentifierType) {
+			IdentifierType it = (IdentifierType)t;
+			ClassDecl cd = globalSymTab.get(it.symbol());
+			if (cd != null) it.link = cd;
+		}
+	}
+
+	/*************** declarations and types ****************/
+
+	@Override
+	public Object visitInstVarDecl(InstVarDecl n) {
+		if (n.name.equals("length")) {
+			resolveErrors.add(n.pos, "Illegal name, 'length', for an instance variable");
+		}
+		n.type.accept(this);
+		return Boolean.FALSE;
+	}
+
+	@Override
+	public Object visitFormalDecl(FormalDecl n) {
+		n.type.accept(this);
+		if (!insertDecl(localSymTab, n.symbol(), n)) {
+			resolveErrors.add(n.pos, "Duplicate variable name: "+n.name);
+		}
+		return Boolean.FALSE;
+	}
+
+	@Override
+	public Object visitMethodDeclVoid(MethodDeclVoid n) {
+		checkMethod(n);
+		return Boolean.FALSE;
+	}
+
+	@Override
+	public Object visitMethodDeclNonVoid(MethodDeclNonVoid n) {
+		boolean abrupt = checkMethod(n);
+		n.rtnType.accept(this);
+		n.rtnExp.accept(this);
+		matchTypesAssign(n.rtnExp.type, n.rtnType, n.rtnExp.pos);
+		if (abrupt) {
+			flowErrors.add(n.rtnExp.pos, "Unreachable code");
+		}
+		return Boolean.FALSE;
+	}
+
+	/**
+	 * checks a method against the one it overrides, and checks its formal
+	 * parameters and body
+	 * @param n the method
+	 * @return whether the body cannot complete normally
+	 */
+	private boolean checkMethod(MethodDecl n) {
+		n.superMethod = methodLookup(n.symbol(), currentClass.superLink, -1, null);
+		if (n.superMethod != null) {
+			Type rt = returnTypeFor(n);
+			Type rtSuper = returnTypeFor(n.superMethod);
+			if (!rt.equals(rtSuper)) {
+				typeErrors.add(n.pos, "Method's return type "+rt.toString2()+
+						" does not match "+rtSuper.toString2()+" in superclass method");
+			}
+			int numParms = n.formals.size();
+			int sizeSuper = n.superMethod.formals.size();
+			if (numParms == sizeSuper) {
+				for (int i = 0; i < numParms; i++) {
+					Type t = n.formals.elementAt(i).type;
+					Type tSuper = n.superMethod.formals.elementAt(i).type;
+					if (!t.equals(tSuper)) {
+						typeErrors.add(t.pos, "Formal parameter type "+t.toString2()+
+								" does not match "+tSuper.toString2()+" in superclass method");
+					}
+				}
+			}
+			else {
+				typeErrors.add(n.pos, "Method's parameter-count "+numParms+
+						" does not match "+sizeSuper+" in superclass method");
+			}
+		}
+		localSymTab = new SymbolTable<VarDecl>();
+		sawBreak = false;
+		n.formals.accept(this);
+		return abrupt(n.stmts.accept(this));
+	}
+
+	@Override
+	public Object visitIdentifierType(IdentifierType n) {
+		ClassDecl cd = lookupClassDecl(n.symbol(), n.pos, "Undefined class name: ");
+		if (cd != null) n.link = cd;
+		return null;
+	}
+
+	@Override
+	public Object visitArrayType(ArrayType n) {
+		n.baseType.accept(this);
+		return null;
+	}
+
+	/*************** statements ****************/
+
+	// each statement's visit returns whether the statement cannot complete
+	// normally
+
+	@Override
+	public Object visitStatementList(StatementList n) {
+		int size = n.size();
+		Object rtnVal = Boolean.FALSE;
+		for (int i = 0; i < size; i++) {
+			rtnVal = n.elementAt(i).accept(this);
+			if (i+1 < size) {
+				checkReachable(rtnVal, n.elementAt(i+1));
+			}
+		}
+		return rtnVal;
+	}
+
+	/**
+	 * reports a statement as unreachable if it follows one that cannot
+	 * complete normally, unless it is labeled
+	 * @param abrupt the previous statement's result
+	 * @param next the statement
+	 */
+	private void checkReachable(Object abrupt, Statement next) {
+		if (abrupt(abrupt) && !(next instanceof Label)) {
+			flowErrors.add(next.pos, "Unreachable code");
+		}
+	}
+
+	@Override
+	public Object visitBlock(Block n) {
+		Object rtnVal = n.stmts.accept(this);
+		removeLocals(n.stmts);
+		return rtnVal;
+	}
+
+	@Override
+	public Object visitLocalDeclStatement(LocalDeclStatement n) {
+		n.localVarDecl.accept(this);
+		return Boolean.FALSE;
+	}
+
+	@Override
+	public Object visitLocalVarDecl(LocalVarDecl n) {
+		Symbol sym = n.symbol();
+		if (localSymTab.get(sym) != null) {
+			resolveErrors.add(n.pos, "Duplicate variable name: "+n.name);
+			return Boolean.FALSE;
+		}
+		// the variable may not be used in its own initializer
+		localSymTab.put(sym, uninitVarDecl);
+		n.type.accept(this);
+		n.initExp.accept(this);
+		localSymTab.remove(sym);
+		localSymTab.put(sym, n);
+		matchTypesAssign(n.initExp.type, n.type, n.initExp.pos);
+		return Boolean.FALSE;
+	}
+
+	@Override
+	public Object visitAssign(Assign n) {
+		n.lhs.accept(this);
+		n.rhs.accept(this);
+		if (n.lhs instanceof IdentifierExp || n.lhs instanceof ArrayLookup ||
+				n.lhs instanceof InstVarAccess) {
+			matchTypesAssign(n.rhs.type, n.lhs.type, n.pos);
+		}
+		else {
+			typeErrors.add(n.pos, "Assignment target not modifiable");
+		}
+		return Boolean.FALSE;
+	}
+
+	@Override
+	public Object visitCallStatement(CallStatement n) {
+		n.callExp.accept(this);
+		return Boolean.FALSE;
+	}
+
+	@Override
+	public Object visitIf(If n) {
+		n.exp.accept(this);
+		Object t = n.trueStmt.accept(this);
+		Object f = n.falseStmt.accept(this);
+		matchTypesExact(n.exp.type, Types.BOOLEAN, n.exp.pos);
+		return abrupt(t) && abrupt(f);
+	}
+
+	@Override
+	public Object visitWhile(While n) {
+		boolean outerSawBreak = sawBreak;
+		sawBreak = false;
+		breakTargetStack.push(n);
+		n.exp.accept(this);
+		n.body.accept(this);
+		breakTargetStack.pop();
+		matchTypesExact(n.exp.type, Types.BOOLEAN, n.exp.pos);
+		Object con = n.exp.accept(constEval);
+		Boolean rtnVal;
+		if (con == null) {
+			rtnVal = Boolean.FALSE;
+		}
+		else if (con.equals(Boolean.FALSE)) {
+			flowErrors.add(n.body.pos, "Unreachable code");
+			rtnVal = Boolean.FALSE;
+		}
+		else if (con.equals(Boolean.TRUE)) {
+			// an infinite loop completes only by a break
+			rtnVal = !sawBreak;
+		}
+		else {
+			flowErrors.add(n.exp.pos, "Internal error: non-boolean constant evaluation");
+			rtnVal = Boolean.FALSE;
+		}
+		sawBreak = outerSawBreak;
+		return rtnVal;
+	}
+
+	@Override
+	public Object visitSwitch(Switch n) {
+		boolean outerSawBreak = sawBreak;
+		breakTargetStack.push(n);
+		n.exp.accept(this);
+		matchTypesExact(n.exp.type, Types.INT, n.exp.pos);
+		StatementList stmts = n.stmts;
+		int size = stmts.size();
+		if (size > 0 && !(stmts.elementAt(0) instanceof Label)) {
+			flowErrors.add(stmts.elementAt(0).pos, "Unreachable code");
+		}
+
+		// a break skips the declarations before it, up to the previous
+		// break, for the code after the next label
+		HashSet<Symbol> names = new HashSet<Symbol>();
+		for (int i = 0; i < size; i++) {
+			Statement s = stmts.elementAt(i);
+			if (s instanceof LocalDeclStatement) {
+				names.add(((LocalDeclStatement)s).localVarDecl.symbol());
+			}
+			else if (s instanceof Break) {
+				for (Symbol name : names) {
+					localSymTab.put(name, uninitVarDecl);
+				}
+				names.clear();
+			}
+			Object abrupt = s.accept(this);
+			if (i+1 < size) {
+				checkReachable(abrupt, stmts.elementAt(i+1));
+			}
+		}
+		removeLocals(stmts);
+		breakTargetStack.pop();
+		sawBreak = outerSawBreak;
+		checkLabels(n);
+		return Boolean.FALSE;
+	}
+
+	/**
+	 * checks the labels of a switch statement, and the statements around
+	 * them
+	 * @param n the switch statement
+	 */
+	private void checkLabels(Switch n) {
+		StatementList stmts = n.stmts;
+		if (!stmts.isEmpty() && !(stmts.elementAt(0) instanceof Label)) {
+			typeErrors.add(n.pos, "Switch-block must begin with a 'case' or 'default' label");
+		}
+		boolean labelOK = true;
+		Hashtable<Integer,Case> caseValMap = new Hashtable<Integer,Case>();
+		Default defaultLabel = null;
+		for (Statement s : stmts) {
+			if (s instanceof Label) {
+				Label thisLabel = (Label)s;
+				if (!labelOK) {
+					typeErrors.add(thisLabel.pos, "Case-label may not follow a non-break statement");
+				}
+				labelOK = true;
+				if (thisLabel instanceof Default) {
+					if (defaultLabel == null) {
+						defaultLabel = (Default)thisLabel;
+					}
+					else {
+						typeErrors.add(thisLabel.pos,
+								"Switch statement has more than one default-label (other at ",
+								defaultLabel.pos);
+					}
+				}
+				else {
+					Case thisCase = (Case)thisLabel;
+					if (matchTypesExact(thisCase.exp.type, Types.INT, thisCase.pos)) {
+						Integer expVal = (Integer)thisCase.exp.accept(constEval);
+						if (expVal == null) {
+							typeErrors.add(thisCase.pos, "Case-label value must be a constant expression");
+						}
+						else if (caseValMap.containsKey(expVal)) {
+							typeErrors.add(thisCase.pos,
+									"Switch statement cannot have more than one label with value "+
+									expVal+" (other at ", caseValMap.get(expVal).pos);
+						}
+						else {
+							caseValMap.put(expVal, thisCase);
+						}
+					}
+				}
+			}
+			else {
+				labelOK = s instanceof Break;
+			}
+		}
+		if (!stmts.isEmpty() && !(stmts.lastElement() instanceof Break)) {
+			typeErrors.add(stmts.lastElement().pos,
+					"Last statement in a switch-body must be a 'break'");
+		}
+	}
+
+	@Override
+	public Object visitBreak(Break n) {
+		if (breakTargetStack.isEmpty()) {
+			resolveErrors.add(n.pos, "Break statement not in loop or switch");
+		}
+		else {
+			n.breakLink = breakTargetStack.peek();
+		}
+		sawBreak = true;
+		return Boolean.TRUE;
+	}
+
+	@Override
+	public Object visitCase(Case n) {
+		checkLabel(n);
+		n.exp.accept(this);
+		return Boolean.FALSE;
+	}
+
+	@Override
+	public Object visitDefault(Default n) {
+		checkLabel(n);
+		return Boolean.FALSE;
+	}
+
+	private void checkLabel(Label n) {
+		if (breakTargetStack.isEmpty()) {
+			resolveErrors.add(n.pos, "Case label not in a switch statement");
+		}
+		else if (breakTargetStack.peek() instanceof Switch) {
+			n.enclosingSwitch = (Switch)breakTargetStack.peek();
+		}
+		else {
+			resolveErrors.add(n.pos, "Case label inside a loop rather than switch");
+		}
+	}
+
+	/**
+	 * removes from the local symbol table the variables declared by a list
+	 * of statements, at the end of their scope
+	 * @param stmts the statements
+	 */
+	private void removeLocals(StatementList stmts) {
+		for (Statement s : stmts) {
+			if (s instanceof LocalDeclStatement) {
+				localSymTab.remove(((LocalDeclStatement)s).localVarDecl.symbol());
+			}
+		}
+	}
+
+	/*************** expressions ****************/
+
+	@Override
+	public Object visitIdentifierExp(IdentifierExp n) {
+		n.link = localSymTab.get(n.symbol());
+		if (n.link == uninitVarDecl) {
+			resolveErrors.add(n.pos, "Reference to uninitialized variable: "+n.name);
+			n.link = null;
+		}
+		else if (n.link == null) {
+			n.link = instVarLookup(n.symbol(), currentClass, n.pos,
+					"Undefined variable name: "+n.name, resolveErrors);
+		}
+		if (n.link != null) {
+			n.type = n.link.type;
+		}
+		else {
+			typeErrors.add(n.pos, "Internal error: non-variable linked as variable: "+n.name);
+		}
+		return null;
+	}
+
+	@Override
+	public Object visitCall(Call n) {
+		n.obj.accept(this);
+		n.parms.accept(this);
+		Type objType = n.obj.type;
+		if (objType == null) return null;
+		ClassDecl cd = objType instanceof IdentifierType ? ((IdentifierType)objType).link : null;
+		n.methodLink = methodLookup(n.methSymbol(), cd, n.pos,
+				"Method "+n.methName+" not defined for "+objType.toString2());
+		if (n.methodLink == null) return null;
+		int numParms = n.parms.size();
+		int expectedNumParms = n.methodLink.formals.size();
+		if (numParms == expectedNumParms) {
+			for (int i = 0; i < numParms; i++) {
+				Exp parm = n.parms.elementAt(i);
+				matchTypesAssign(parm.type, n.methodLink.formals.elementAt(i).type, parm.pos);
+			}
+		}
+		else {
+			typeErrors.add(n.pos, "Wrong number of parameters in call to '"+n.methName+"': "+
+					numParms+" ("+expectedNumParms+" expected)");
+		}
+		n.type = returnTypeFor(n.methodLink);
+		return null;
+	}
+
+	@Override
+	public Object visitCast(Cast n) {
+		n.castType.accept(this);
+		n.exp.accept(this);
+		if (matchTypesAssign(n.exp.type, n.castType, -1) ||
+				matchTypesAssign(n.castType, n.exp.type, -1)) {
+			n.type = n.castType;
+		}
+		else if (n.exp.type != null && n.castType != null) {
+			typeErrors.add(n.pos, "Incompatible types for cast: "+
+					n.castType.toString2()+" and "+n.exp.type.toString2());
+		}
+		return null;
+	}
+
+	@Override
+	public Object visitInstanceOf(InstanceOf n) {
+		n.exp.accept(this);
+		n.checkType.accept(this);
+		if (matchTypesAssign(n.exp.type, n.checkType, -1) ||
+				matchTypesAssign(n.checkType, n.exp.type, -1)) {
+			n.type = Types.BOOLEAN;
+		}
+		else if (n.exp.type != null && n.checkType != null) {
+			typeErrors.add(n.pos, "Incompatible types for 'instanceof': "+
+					n.checkType.toString2()+" and "+n.exp.type.toString2());
+		}
+		return null;
+	}
+
+	@Override
+	public Object visitInstVarAccess(InstVarAccess n) {
+		n.exp.accept(this);
+		if (n.exp.type == null) return null;
+		String msg = "Instance variable "+n.varName+" not defined for "+n.exp.type.toString2();
+		if (n.exp.type instanceof IdentifierType) {
+			n.varDec = instVarLookup(n.varSymbol(), ((IdentifierType)n.exp.type).link,
+					n.pos, msg, typeErrors);
+		}
+		else {
+			typeErrors.add(n.pos, msg);
+			n.varDec = null;
+		}
+		if (n.varDec != null) {
+			n.type = n.varDec.type;
+		}
+		return null;
+	}
+
+	@Override
+	public Object visitNewObject(NewObject n) {
+		if (n.objType.name.equals("RunMain")) {
+			typeErrors.add(n.objType.pos, "Cannot create object of type 'RunMain'");
+		}
+		n.objType.accept(this);
+		n.type = n.objType;
+		return null;
+	}
+
+	@Override
+	public Object visitNewArray(NewArray n) {
+		n.objType.accept(this);
+		n.sizeExp.accept(this);
+		matchTypesExact(n.sizeExp.type, Types.INT, n.sizeExp.pos);
+		n.type = n.objType;
+		return null;
+	}
+
+	@Override
+	public Object visitArrayLookup(ArrayLookup n) {
+		n.arrExp.accept(this);
+		n.idxExp.accept(this);
+		matchTypesExact(n.idxExp.type, Types.INT, n.idxExp.pos);
+		if (n.arrExp.type instanceof ArrayType) {
+			n.type = ((ArrayType)n.arrExp.type).baseType;
+		}
+		else if (n.arrExp.type != null) {
+			typeErrors.add(n.arrExp.pos, "Array type expected");
+		}
+		return null;
+	}
+
+	@Override
+	public Object visitArrayLength(ArrayLength n) {
+		n.exp.accept(this);
+		if (n.exp.type != null && !(n.exp.type instanceof ArrayType)) {
+			typeErrors.add(n.exp.pos, "Array type expected");
+		}
+		n.type = Types.INT;
+		return null;
+	}
+
+	@Override
+	public Object visitNot(Not n) {
+		n.exp.accept(this);
+		matchTypesExact(n.exp.type, Types.BOOLEAN, n.exp.pos);
+		n.type = Types.BOOLEAN;
+		return null;
+	}
+
+	@Override
+	public Object visitAnd(And n) {
+		return checkBinExp(n, Types.BOOLEAN, Types.BOOLEAN, Types.BOOLEAN);
+	}
+
+	@Override
+	public Object visitOr(Or n) {
+		return checkBinExp(n, Types.BOOLEAN, Types.BOOLEAN, Types.BOOLEAN);
+	}
+
+	@Override
+	public Object visitPlus(Plus n) {
+		return checkBinExp(n, Types.INT, Types.INT, Types.INT);
+	}
+
+	@Override
+	public Object visitMinus(Minus n) {
+		return checkBinExp(n, Types.INT, Types.INT, Types.INT);
+	}
+
+	@Override
+	public Object visitTimes(Times n) {
+		return checkBinExp(n, Types.INT, Types.INT, Types.INT);
+	}
+
+	@Override
+	public Object visitDivide(Divide n) {
+		return checkBinExp(n, Types.INT, Types.INT, Types.INT);
+	}
+
+	@Override
+	public Object visitRemainder(Remainder n) {
+		return checkBinExp(n, Types.INT, Types.INT, Types.INT);
+	}
+
+	@Override
+	public Object visitLessThan(LessThan n) {
+		return checkBinExp(n, Types.INT, Types.INT, Types.BOOLEAN);
+	}
+
+	@Override
+	public Object visitGreaterThan(GreaterThan n) {
+		return checkBinExp(n, Types.INT, Types.INT, Types.BOOLEAN);
+	}
+
+	@Override
+	public Object visitEquals(Equals n) {
+		n.left.accept(this);
+		n.right.accept(this);
+		matchTypesEqCompare(n.left.type, n.right.type, n.pos);
+		n.type = Types.BOOLEAN;
+		return null;
+	}
+
+	private Object checkBinExp(BinExp n, Type expectLeft, Type expectRight, Type resultType) {
+		n.left.accept(this);
+		n.right.accept(this);
+		matchTypesExact(n.left.type, expectLeft, n.left.pos);
+		matchTypesExact(n.right.type, expectRight, n.right.pos);
+		n.type = resultType;
+		return null;
+	}
+
+	@Override
+	public Object visitIntegerLiteral(IntegerLiteral n) {
+		n.type = Types.INT;
+		return null;
+	}
+
+	@Override
+	public Object visitStringLiteral(StringLiteral n) {
+		n.type = theStringType;
+		return null;
+	}
+
+	@Override
+	public Object visitTrue(True n) {
+		n.type = Types.BOOLEAN;
+		return null;
+	}
+
+	@Override
+	public Object visitFalse(False n) {
+		n.type = Types.BOOLEAN;
+		return null;
+	}
+
+	@Override
+	public Object visitNull(Null n) {
+		n.type = Types.NULL;
+		return null;
+	}
+
+	@Override
+	public Object visitThis(This n) {
+		n.type = currentClassType;
+		return null;
+	}
+
+	@Override
+	public Object visitSuper(Super n) {
+		n.type = currentSuperclassType;
+		return null;
+	}
+
+	/*************** lookup ****************/
+
+	private ClassDecl lookupClassDecl(Symbol sym, int pos, String msg) {
+		ClassDecl rtnVal = globalSymTab.get(sym);
+		if (rtnVal == null && msg != null) {
+			resolveErrors.add(pos, msg+sym.name);
+		}
+		return rtnVal;
+	}
+
+	/**
+	 * looks up an instance variable in a class and its superclasses
+	 * @param sym the variable's name
+	 * @param cd the class
+	 * @param pos the position at which to report a missing variable
+	 * @param msg the message with which to report it, or null
+	 * @param diags where to report it
+	 * @return the variable's declaration, or null if there is none
+	 */
+	private static InstVarDecl instVarLookup(Symbol sym, ClassDecl cd, int pos,
+			String msg, Diagnostics diags) {
+		for (; cd != null; cd = cd.superLink) {
+			InstVarDecl rtnVal = SymbolTable.of(cd.instVarTable).get(sym);
+			if (rtnVal != null) return rtnVal;
+		}
+		if (msg != null) {
+			diags.add(pos, msg);
+		}
+		return null;
+	}
+
+	/**
+	 * looks up a method in a class and its superclasses
+	 * @param sym the method's name
+	 * @param cd the class
+	 * @param pos the position at which to report a missing method
+	 * @param msg the message with which to report it, or null
+	 * @return the method's declaration, or null if there is none
+	 */
+	private MethodDecl methodLookup(Symbol sym, ClassDecl cd, int pos, String msg) {
+		for (; cd != null; cd = cd.superLink) {
+			MethodDecl rtnVal = SymbolTable.of(cd.methodTable).get(sym);
+			if (rtnVal != null) return rtnVal;
+		}
+		if (msg != null) {
+			typeErrors.add(pos, msg);
+		}
+		return null;
+	}
+
+	/**
+	 * enters a declaration into a symbol table, unless the name is already
+	 * there
+	 * @param tab the symbol table
+	 * @param sym the name
+	 * @param decl the declaration
+	 * @return whether the declaration was entered
+	 */
+	private static <T> boolean insertDecl(SymbolTable<? super T> tab, Symbol sym, T decl) {
+		if (tab.get(sym) != null) return false;
+		tab.put(sym, decl);
+		return true;
+	}
+
+	/*************** types ****************/
+
+	private Type returnTypeFor(MethodDecl md) {
+		return md instanceof MethodDeclNonVoid ? ((MethodDeclNonVoid)md).rtnType : Types.VOID;
+	}
+
+	private static boolean isSubClassOf(Type t1, Type t2) {
+		if (!(t1 instanceof IdentifierType) || !(t2 instanceof IdentifierType)) return false;
+		ClassDecl cd = ((IdentifierType)t1).link;
+		ClassDecl target = ((IdentifierType)t2).link;
+		return cd != null && target != null && cd.isSubclassOf(target);
+	}
+
+	private boolean matchTypesExact(Type have, Type need, int pos) {
+		if (have == null || need == null) return false;
+		if (have.equals(need)) return true;
+		if (pos >= 0) {
+			typeErrors.add(pos, "Type-mismatch: "+have.toString2()+" should be "+need.toString2());
+		}
+		return false;
+	}
+
+	private boolean matchTypesAssign(Type src, Type target, int pos) {
+		if (src == null || target == null) return false;
+		if (!(src instanceof VoidType) && src.equals(target)) return true;
+		if (src instanceof NullType &&
+				(target instanceof IdentifierType || target instanceof ArrayType)) {
+			return true;
+		}
+		if (isSubClassOf(src, target)) return true;
+		if (src instanceof ArrayType && target instanceof IdentifierType &&
+				((IdentifierType)target).name.equals("Object")) {
+			return true;
+		}
+		if (pos >= 0) {
+			typeErrors.add(pos, "Type-mismatch: "+src.toString2()+" does not conform to "+
+					target.toString2());
+		}
+		return false;
+	}
+
+	private boolean matchTypesEqCompare(Type t1, Type t2, int pos) {
+		if (t1 == null || t2 == null) return false;
+		if (matchTypesAssign(t1, t2, -1) || matchTypesAssign(t2, t1, -1)) return true;
+		if (pos >= 0) {
+			typeErrors.add(pos, "Type-mismatch: "+t1.toString2()+" and "+t2.toString2()+
+					" do not conform");
+		}
+		return false;
+	}
+
+	private static boolean abrupt(Object result) {
+		return Boolean.TRUE.equals(result);
+	}
+
+	/**
+	 * diagnostics held back for reporting later
+	 *
+	 * A message may refer to a second position, which is put in the message
+	 * only when it is reported, since the error-message object that converts
+	 * it to a line number may not be used by more than one thread at once.
+	 */
+	private static class Diagnostics {
+		private Vector<Integer> positions = new Vector<Integer>();
+		private Vector<String> messages = new Vector<String>();
+		private Vector<Integer> otherPositions = new Vector<Integer>();
+
+		void add(int pos, String msg) {
+			add(pos, msg, null);
+		}
+
+		/**
+		 * adds a message that ends with a second position, in parentheses
+		 * @param pos the position
+		 * @param msg the message, up to the second position
+		 * @param otherPos the second position
+		 */
+		void add(int pos, String msg, Integer otherPos) {
+			positions.add(pos);
+			messages.add(msg);
+			otherPositions.add(otherPos);
+		}
+
+		void addAll(Diagnostics other) {
+			positions.addAll(other.positions);
+			messages.addAll(other.messages);
+			otherPositions.addAll(other.otherPositions);
+		}
+
+		boolean isEmpty() {
+			return messages.isEmpty();
+		}
+
+		void report(ErrorMsg errorMsg) {
+			for (int i = 0; i < messages.size(); i++) {
+				String msg = messages.elementAt(i);
+				Integer otherPos = otherPositions.elementAt(i);
+				if (otherPos != null) {
+					msg += errorMsg.lineAndChar(otherPos)+")";
+				}
+				errorMsg.error(positions.elementAt(i), msg);
+			}
+		}
+	}
+}
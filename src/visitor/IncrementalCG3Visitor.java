@@ -0,0 +1,364 @@
+package visitor;
+
+import syntaxtree.*;
+
+import errorMsg.*;
+import java.io.*;
+import java.security.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * a CG3Visitor that reuses, class by class, the code generated by an
+ * earlier compilation of the same file
+ *
+ * Each class's code is keyed by a fingerprint of everything it can depend
+ * on: the class's source text and position, the classes and relative
+ * positions of the nodes in its subtree, the layout of every class it
+ * refers to (and of their superclasses), and the number of lines emitted
+ * before it (which determines its whitespace padding). If the earlier
+ * compilation produced code under the same fingerprint, that code is
+ * copied to the output instead of being generated again, so the output is
+ * identical to that of a full compilation.
+ *
+ * A class's layout is what the code of another class can use of it: its
+ * superclass, its number of instance variables of each kind, and the
+ * offset and type of each of its instance variables and methods. So a
+ * change to the body of a method invalidates the code of its own class,
+ * and, if that code's length in lines changes, of the classes after it,
+ * but not that of the classes that use it.
+ *
+ * Unique IDs are left out of the fingerprint, since adding or removing a
+ * node anywhere in the file renumbers the nodes after it, and the
+ * predefined classes, which are numbered last. The labels in the code do
+ * contain IDs: those of nodes in the class, and of the superclass methods
+ * that it calls directly. The fingerprint's walk lists those nodes, in an
+ * order that is the same whenever the fingerprint is, and a saved fragment
+ * refers to each label's node by its place in the list, so its code can be
+ * reused with the nodes' current IDs.
+ */
+public class IncrementalCG3Visitor extends CG3Visitor {
+
+	// the source file's contents
+	private byte[] source;
+
+	// the fragments of the earlier compilation, by fingerprint
+	private Map<String,CodeFragment> oldFragments;
+
+	// the fragments of this compilation, by fingerprint
+	private Map<String,CodeFragment> newFragments;
+
+	// the start and end of each user-declared class's source text
+	private Map<ClassDecl,int[]> textRanges;
+
+	// hash of each class's source text, computed on demand
+	private Map<ClassDecl,String> textHashes;
+
+	private int numReused;
+	private int numGenerated;
+
+	/**
+	 * constructor
+	 * @param e the error-message object
+	 * @param out the stream to which code is emitted
+	 * @param source the contents of the source file
+	 * @param oldFragments the fragments of the earlier compilation
+	 */
+	public IncrementalCG3Visitor(ErrorMsg e, PrintStream out, byte[] source,
+			Map<String,CodeFragment> oldFragments) {
+		super(e, out);
+		this.source = source;
+		this.oldFragments = oldFragments;
+		newFragments = new HashMap<String,CodeFragment>();
+		textRanges = new HashMap<ClassDecl,int[]>();
+		textHashes = new HashMap<ClassDecl,String>();
+	}
+
+	/**
+	 * @return the fragments generated or reused by this compilation, to be
+	 * saved for the next one
+	 */
+	public Map<String,CodeFragment> getFragments() {
+		return newFragments;
+	}
+
+	/**
+	 * @return the number of classes whose code was reused
+	 */
+	public int numReused() {
+		return numReused;
+	}
+
+	/**
+	 * @return the number of classes whose code was generated
+	 */
+	public int numGenerated() {
+		return numGenerated;
+	}
+
+	public Object visitProgram(Program n) {
+		// a user-declared class's text runs up to the start of the next one
+		Vector<ClassDecl> userClasses = new Vector<ClassDecl>();
+		for (ClassDecl cd : n.classDecls) {
+			if (cd.pos >= 0) userClasses.add(cd);
+		}
+		Collections.sort(userClasses, new Comparator<ClassDecl>() {
+			public int compare(ClassDecl a, ClassDecl b) {
+				return a.pos < b.pos ? -1 : a.pos > b.pos ? 1 : 0;
+			}
+		});
+		for (int i = 0; i < userClasses.size(); i++) {
+			int end = i+1 < userClasses.size()
+					? userClasses.elementAt(i+1).pos : source.length;
+			textRanges.put(userClasses.elementAt(i),
+					new int[]{userClasses.elementAt(i).pos, end});
+		}
+		return super.visitProgram(n);
+	}
+
+	public Object visitClassDecl(ClassDecl n) {
+		Vector<AstNode> labelNodes = new Vector<AstNode>();
+		String key = fingerprint(n, labelNodes);
+		CodeFragment frag = oldFragments.get(key);
+		if (frag != null) {
+			int[] ids = new int[labelNodes.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = labelNodes.elementAt(i).uniqueId;
+			}
+			byte[] text = frag.text(ids);
+			code.flush();
+			PrintStream out = code.setOutput(null);
+			out.write(text, 0, text.length);
+			code.setOutput(out);
+			code.skipLines(frag.numLines);
+			numReused++;
+		}
+		else {
+			ByteArrayOutputStream buf = new ByteArrayOutputStream();
+			PrintStream out = code.setOutput(new PrintStream(buf));
+			int startLines = code.linesEmitted();
+			super.visitClassDecl(n);
+			code.flush();
+			code.setOutput(out);
+			byte[] text = buf.toByteArray();
+			frag = fragment(code.linesEmitted()-startLines, text, labelNodes);
+			out.write(text, 0, text.length);
+			numGenerated++;
+		}
+		newFragments.put(key, frag);
+		return null;
+	}
+
+	// a label that ends in a node's unique ID (see CG3Visitor), not preceded
+	// by a character that would make it part of a longer name
+	private static final Pattern LABEL = Pattern.compile(
+			"(?<![A-Za-z0-9_$])(?:fcn|strLit|skip|if_else|if_done|" +
+			"while_enter|while_top|break_target)_([0-9]+)");
+
+	/**
+	 * makes a fragment of a class's code, taking the IDs out of its labels
+	 * @param numLines the number of lines in the code
+	 * @param text the code
+	 * @param labelNodes the nodes whose IDs the labels may contain
+	 * @return the fragment
+	 */
+	private static CodeFragment fragment(int numLines, byte[] text,
+			Vector<AstNode> labelNodes) {
+		Map<Integer,Integer> indexes = new HashMap<Integer,Integer>();
+		for (int i = labelNodes.size()-1; i >= 0; i--) {
+			indexes.put(labelNodes.elementAt(i).uniqueId, i);
+		}
+		// ISO-8859-1 maps each byte to one char, so offsets carry over
+		String s;
+		try {
+			s = new String(text, "ISO-8859-1");
+		}
+		catch (UnsupportedEncodingException uex) {
+			throw new RuntimeException(uex);
+		}
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(text.length);
+		Vector<Integer> labels = new Vector<Integer>();
+		int done = 0;
+		Matcher m = LABEL.matcher(s);
+		while (m.find()) {
+			Integer index = null;
+			try {
+				index = indexes.get(Integer.valueOf(m.group(1)));
+			}
+			catch (NumberFormatException nfx) {
+			}
+			if (index == null) continue;
+			buf.write(text, done, m.start(1)-done);
+			labels.add(buf.size());
+			labels.add(index);
+			done = m.end(1);
+		}
+		buf.write(text, done, text.length-done);
+		int[] labelArray = new int[labels.size()];
+		for (int i = 0; i < labelArray.length; i++) {
+			labelArray[i] = labels.elementAt(i);
+		}
+		return new CodeFragment(numLines, buf.toByteArray(), labelArray);
+	}
+
+	/**
+	 * computes a class's fingerprint
+	 * @param n the class
+	 * @param labelNodes set to the nodes whose IDs the class's labels may
+	 * contain: those of the class, in the walk's order, each call followed
+	 * by the method it calls
+	 * @return the fingerprint, as a hex string
+	 */
+	private String fingerprint(ClassDecl n, final Vector<AstNode> labelNodes) {
+		final MessageDigest md = newDigest();
+		update(md, errorMsg.getFileName());
+		update(md, String.valueOf(code.linesEmitted()));
+		update(md, errorMsg.lineAndChar(n.pos));
+		update(md, textHash(n));
+
+		// the nodes of the class, and the classes they refer to
+		final int base = n.pos;
+		final Set<ClassDecl> deps = new HashSet<ClassDecl>();
+		addWithSuperclasses(deps, n);
+		n.accept(new ASTvisitor() {
+			public Object visitAstNode(AstNode node) {
+				if (node instanceof Type && Types.isCanonical((Type)node)) {
+					// shared by the whole program, so not at any place in it
+					update(md, "canonical "+typeKey((Type)node));
+				}
+				else {
+					update(md, node.getClass().getName()+"@"+(node.pos-base));
+				}
+				labelNodes.add(node);
+				if (node instanceof Exp) {
+					addTypeClass(deps, ((Exp)node).type);
+				}
+				if (node instanceof Type) {
+					addTypeClass(deps, (Type)node);
+				}
+				if (node instanceof VarDecl) {
+					addTypeClass(deps, ((VarDecl)node).type);
+				}
+				if (node instanceof Call && ((Call)node).methodLink != null) {
+					addWithSuperclasses(deps, ((Call)node).methodLink.classDecl);
+					labelNodes.add(((Call)node).methodLink);
+				}
+				return null;
+			}
+		});
+
+		Vector<String> depKeys = new Vector<String>();
+		for (ClassDecl cd : deps) {
+			depKeys.add(layout(cd));
+		}
+		Collections.sort(depKeys);
+		for (String s : depKeys) {
+			update(md, s);
+		}
+		return toHex(md.digest());
+	}
+
+	/**
+	 * describes the layout of a class: what the code of other classes can
+	 * depend on
+	 * @param cd the class
+	 * @return the description
+	 */
+	private static String layout(ClassDecl cd) {
+		StringBuilder sb = new StringBuilder(cd.name);
+		sb.append(':').append(cd.superLink == null ? "" : cd.superLink.name);
+		sb.append(':').append(cd.numDataInstVars).append(':').append(cd.numObjInstVars);
+		for (Decl d : cd.decls) {
+			if (d instanceof InstVarDecl) {
+				InstVarDecl ivd = (InstVarDecl)d;
+				sb.append("|var ").append(ivd.name).append(' ').append(ivd.offset);
+				sb.append(' ').append(typeKey(ivd.type));
+			}
+			else if (d instanceof MethodDecl) {
+				MethodDecl md = (MethodDecl)d;
+				sb.append("|method ").append(md.name).append(' ').append(md.vtableOffset);
+				sb.append(' ').append(md.thisPtrOffset);
+				// a predefined method's label is its name, not its ID
+				if (md.pos < 0) sb.append(' ').append(md.label());
+				sb.append(' ').append(md instanceof MethodDeclNonVoid
+						? typeKey(((MethodDeclNonVoid)md).rtnType) : "void");
+				for (VarDecl formal : md.formals) {
+					sb.append(' ').append(typeKey(formal.type));
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String typeKey(Type t) {
+		if (t instanceof ArrayType) {
+			return "[" + typeKey(((ArrayType)t).baseType);
+		}
+		else if (t instanceof IdentifierType) {
+			return ((IdentifierType)t).name;
+		}
+		else {
+			return t == null ? "-" : t.getClass().getSimpleName();
+		}
+	}
+
+	private static void addTypeClass(Set<ClassDecl> deps, Type t) {
+		while (t instanceof ArrayType) {
+			t = ((ArrayType)t).baseType;
+		}
+		if (t instanceof IdentifierType) {
+			addWithSuperclasses(deps, ((IdentifierType)t).link);
+		}
+	}
+
+	private static void addWithSuperclasses(Set<ClassDecl> deps, ClassDecl cd) {
+		for (; cd != null && deps.add(cd); cd = cd.superLink) {
+		}
+	}
+
+	/**
+	 * a hash of a class's source text; empty for built-in classes
+	 * @param cd the class
+	 * @return the hash, as a hex string
+	 */
+	private String textHash(ClassDecl cd) {
+		String h = textHashes.get(cd);
+		if (h == null) {
+			MessageDigest md = newDigest();
+			int[] range = textRanges.get(cd);
+			if (range != null) {
+				md.update(source, range[0], range[1]-range[0]);
+			}
+			h = toHex(md.digest());
+			textHashes.put(cd, h);
+		}
+		return h;
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException nsax) {
+			throw new RuntimeException(nsax);
+		}
+	}
+
+	private static void update(MessageDigest md, String s) {
+		try {
+			md.update(s.getBytes("UTF-8"));
+			md.update((byte)0);
+		}
+		catch (UnsupportedEncodingException uex) {
+			throw new RuntimeException(uex);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b & 0xff));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,54 @@
+package visitor;
+
+import java.lang.management.*;
+
+/**
+ * the CPU time and allocation of the current thread, for compilation
+ * statistics; work that a compilation hands to other threads is measured
+ * on those threads, and added to the compilation's by whoever waits for it
+ */
+public class ThreadUsage {
+
+	private ThreadUsage() {
+	}
+
+	/**
+	 * @return the CPU time used by the current thread, in nanoseconds, or
+	 * -1 if the JVM does not measure it
+	 */
+	public static long cpuTime() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!bean.isCurrentThreadCpuTimeSupported()) return -1;
+		return bean.getCurrentThreadCpuTime();
+	}
+
+	/**
+	 * @return the number of bytes allocated by the current thread, or -1 if
+	 * the JVM does not measure it
+	 */
+	public static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+		com.sun.management.ThreadMXBean sunBean =
+			(com.sun.management.ThreadMXBean)bean;
+		if (!sunBean.isThreadAllocatedMemorySupported() ||
+				!sunBean.isThreadAllocatedMemoryEnabled()) return -1;
+		return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @param start a measurement taken earlier on the same thread
+	 * @param end a later one
+	 * @return the difference, or -1 if either is missing
+	 */
+	public static long since(long start, long end) {
+		return (start < 0 || end < 0) ? -1 : end - start;
+	}
+
+	/**
+	 * @return the sum of two measurements, or -1 if either is missing
+	 */
+	public static long plus(long a, long b) {
+		return (a < 0 || b < 0) ? -1 : a + b;
+	}
+}
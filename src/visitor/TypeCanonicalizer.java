@@ -0,0 +1,70 @@
+package visitor;
+
+import java.util.*;
+
+import syntaxtree.*;
+
+/**
+ * replaces each type in the AST with its canonical type (see Types): the
+ * types of declarations, expressions, casts, instanceof tests and array and
+ * object creations; run after type checking, so that the passes that
+ * follow compare and inspect one object per type rather than one per
+ * mention
+ */
+public class TypeCanonicalizer extends ASTvisitor {
+
+	// the classes visited so far
+	private Set<ClassDecl> visited =
+		Collections.newSetFromMap(new IdentityHashMap<ClassDecl,Boolean>());
+
+	/**
+	 * canonicalizes the types of a program, and of the predefined classes,
+	 * which are not part of its AST
+	 * @param ast the program
+	 * @param globalTab the global symbol table
+	 */
+	public void canonicalize(AstNode ast, Map<String,ClassDecl> globalTab) {
+		visit(ast);
+		for (ClassDecl cd : globalTab.values()) {
+			if (!visited.contains(cd)) {
+				visit(cd);
+			}
+		}
+	}
+
+	@Override
+	public Object visitClassDecl(ClassDecl n) {
+		visited.add(n);
+		return super.visitClassDecl(n);
+	}
+
+	@Override
+	public Object visitAstNode(AstNode n) {
+		if (n instanceof Exp) {
+			Exp e = (Exp)n;
+			e.type = Types.canonical(e.type);
+			if (n instanceof Cast) {
+				((Cast)n).castType = Types.canonical(((Cast)n).castType);
+			}
+			else if (n instanceof InstanceOf) {
+				((InstanceOf)n).checkType = Types.canonical(((InstanceOf)n).checkType);
+			}
+			else if (n instanceof NewArray) {
+				((NewArray)n).objType = Types.canonical(((NewArray)n).objType);
+			}
+			else if (n instanceof NewObject) {
+				NewObject no = (NewObject)n;
+				if (no.objType.link != null) {
+					no.objType = Types.classType(no.objType.link);
+				}
+			}
+		}
+		else if (n instanceof VarDecl) {
+			((VarDecl)n).type = Types.canonical(((VarDecl)n).type);
+		}
+		else if (n instanceof MethodDeclNonVoid) {
+			((MethodDeclNonVoid)n).rtnType = Types.canonical(((MethodDeclNonVoid)n).rtnType);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,124 @@
+package main;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * checks that MappedInputStream.open reads a regular file, an empty file and
+ * a pipe (a FIFO, whose size is reported as zero) in full
+ *
+ * Run with "java main.MappedInputStreamTest"; it exits with status 1 if a
+ * check fails. The pipe check is skipped where mkfifo is not available.
+ */
+public class MappedInputStreamTest {
+
+	private static int failures = 0;
+
+	public static void main(String[] args) throws Exception {
+		byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte)("class Main {}\n".charAt(i % 14));
+		}
+		File dir = createTempDir();
+		try {
+			File regular = new File(dir, "regular.java");
+			write(regular, data);
+			check("regular file", data, read(regular));
+
+			File empty = new File(dir, "empty.java");
+			write(empty, new byte[0]);
+			check("empty file", new byte[0], read(empty));
+
+			File fifo = new File(dir, "fifo.java");
+			if (mkfifo(fifo)) {
+				writeInBackground(fifo, data);
+				check("pipe", data, read(fifo));
+			}
+			else {
+				System.out.println("SKIPPED pipe: mkfifo is not available");
+			}
+		}
+		finally {
+			for (File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+
+	private static void check(String what, byte[] expected, byte[] actual) {
+		if (Arrays.equals(expected, actual)) {
+			System.out.println("ok "+what);
+		}
+		else {
+			System.out.println("FAILED "+what+": read "+actual.length+
+					" bytes, expected "+expected.length);
+			failures++;
+		}
+	}
+
+	private static byte[] read(File f) throws IOException {
+		InputStream is = MappedInputStream.open(f);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			// a byte at a time, as the parsers read
+			for (int c; (c = is.read()) >= 0;) {
+				out.write(c);
+			}
+			return out.toByteArray();
+		}
+		finally {
+			is.close();
+		}
+	}
+
+	private static void write(File f, byte[] data) throws IOException {
+		FileOutputStream os = new FileOutputStream(f);
+		try {
+			os.write(data);
+		}
+		finally {
+			os.close();
+		}
+	}
+
+	private static void writeInBackground(final File f, final byte[] data) {
+		Thread t = new Thread() {
+			@Override
+			public void run() {
+				try {
+					write(f, data);
+				}
+				catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		t.setDaemon(true);
+		t.start();
+	}
+
+	private static boolean mkfifo(File f) {
+		try {
+			Process p = new ProcessBuilder("mkfifo", f.getPath()).start();
+			return p.waitFor() == 0;
+		}
+		catch (IOException e) {
+			return false;
+		}
+		catch (InterruptedException e) {
+			return false;
+		}
+	}
+
+	private static File createTempDir() throws IOException {
+		File dir = File.createTempFile("mapped", "");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Cannot create "+dir);
+		}
+		return dir;
+	}
+}